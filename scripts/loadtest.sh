@@ -0,0 +1,38 @@
+#!/usr/bin/env bash
+#
+# Compare platform-thread and virtual-thread request execution under a dashboard/action-list burst.
+#
+# Start the application in one mode, run this script, then restart it in the other mode and run it again:
+#   mvn -P jdk21 spring-boot:run                                                  # platform threads
+#   mvn -P jdk21 spring-boot:run -Dspring-boot.run.arguments=--ecotrack.virtual-threads.enabled=true
+#   scripts/loadtest.sh [base-url] [concurrency] [duration]
+#
+# Requires curl and hey (https://github.com/rakyll/hey). hey prints requests/sec and the latency
+# distribution; compare "Requests/sec" and the 99% line between the two runs.
+set -euo pipefail
+
+BASE_URL=${1:-http://localhost:8080}
+CONCURRENCY=${2:-400}
+DURATION=${3:-30s}
+EMAIL=${LOADTEST_EMAIL:-loadtest@ecotrack.local}
+PASSWORD=${LOADTEST_PASSWORD:-loadtest}
+
+COOKIES=$(mktemp)
+trap 'rm -f "$COOKIES"' EXIT
+
+# register (ignored if the account exists) and sign in to obtain a session cookie
+curl -s -o /dev/null -c "$COOKIES" -b "$COOKIES" \
+    --data-urlencode "email=$EMAIL" --data-urlencode "password=$PASSWORD" -d "name=Load test&avatar=" \
+    "$BASE_URL/register"
+curl -s -o /dev/null -c "$COOKIES" -b "$COOKIES" \
+    --data-urlencode "username=$EMAIL" --data-urlencode "password=$PASSWORD" "$BASE_URL/login"
+SESSION=$(awk '$6 == "JSESSIONID" { print $7 }' "$COOKIES")
+if [ -z "$SESSION" ]; then
+    echo "Could not sign in to $BASE_URL" >&2
+    exit 1
+fi
+
+for path in /dashboard /actions; do
+    echo "== GET $path, $CONCURRENCY concurrent clients for $DURATION"
+    hey -z "$DURATION" -c "$CONCURRENCY" -H "Cookie: JSESSIONID=$SESSION" "$BASE_URL$path"
+done
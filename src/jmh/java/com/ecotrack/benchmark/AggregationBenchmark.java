@@ -0,0 +1,46 @@
+package com.ecotrack.benchmark;
+
+import com.ecotrack.enums.TimeGranularity;
+import com.ecotrack.service.PointsSeries;
+import com.ecotrack.service.PointsSummaryService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dashboard aggregation paths of {@link com.ecotrack.service.EcoActionService}, plus the summary rebuild
+ * that scans the full history.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AggregationBenchmark {
+
+    @Benchmark
+    public int computeTotalPoints(SeededApplication app) {
+        return app.ecoActionService.computeTotalPoints(app.userId);
+    }
+
+    @Benchmark
+    public PointsSeries computeWeeklySeries(SeededApplication app) {
+        return app.ecoActionService.computePointsSeries(app.userId, TimeGranularity.WEEK);
+    }
+
+    @Benchmark
+    public PointsSeries computeMonthlySeries(SeededApplication app) {
+        return app.ecoActionService.computePointsSeries(app.userId, TimeGranularity.MONTH);
+    }
+
+    @Benchmark
+    public Object rebuildSummary(SeededApplication app) {
+        return app.context.getBean(PointsSummaryService.class).rebuild(app.userId);
+    }
+}
@@ -0,0 +1,38 @@
+package com.ecotrack.benchmark;
+
+import com.ecotrack.model.EcoAction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request lookups: the authentication user load and the owner-scoped action lookup used by the
+ * edit form of {@link com.ecotrack.web.EcoActionController}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LookupBenchmark {
+
+    @Benchmark
+    public UserDetails loadUserByUsername(SeededApplication app) {
+        return app.userService.loadUserByUsername(SeededApplication.EMAIL);
+    }
+
+    @Benchmark
+    public Optional<EcoAction> editLookup(SeededApplication app) {
+        long id = app.actionIds[ThreadLocalRandom.current().nextInt(app.actionIds.length)];
+        return app.ecoActionService.findOwned(app.userId, id);
+    }
+}
@@ -0,0 +1,90 @@
+package com.ecotrack.benchmark;
+
+import com.ecotrack.enums.ActionType;
+import com.ecotrack.service.PointsRules;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluation of compiled {@link PointsRules}: scoring an action and looking up a level, with the shipped
+ * rules and with {@link #extraMultipliers} additional campaign multipliers on every type. Runs without the
+ * application; the database side of scoring is one index range scan per write.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RulesBenchmark {
+
+    private static final int SAMPLES = 1024;
+
+    @Param({"0", "20"})
+    public int extraMultipliers;
+
+    private PointsRules rules;
+    private ActionType[] types;
+    private LocalDate[] dates;
+    private int[] streaks;
+    private long[] totals;
+
+    @Setup
+    public void compile() throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = RulesBenchmark.class.getResourceAsStream("/gamification-rules.properties")) {
+            properties.load(in);
+        }
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < extraMultipliers; i++) {
+            properties.setProperty("multiplier.campaign" + i + ".factor", "1.1");
+            properties.setProperty("multiplier.campaign" + i + ".from", today.minusDays(30L * i).toString());
+            properties.setProperty("multiplier.campaign" + i + ".to", today.minusDays(30L * i - 15).toString());
+        }
+        rules = PointsRules.compile(properties, 1);
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        ActionType[] values = ActionType.values();
+        types = new ActionType[SAMPLES];
+        dates = new LocalDate[SAMPLES];
+        streaks = new int[SAMPLES];
+        totals = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            types[i] = values[random.nextInt(values.length)];
+            dates[i] = today.minusDays(random.nextInt(365));
+            streaks[i] = random.nextInt(40);
+            totals[i] = random.nextLong(1000);
+        }
+    }
+
+    @Benchmark
+    public void points(Blackhole blackhole) {
+        for (int i = 0; i < SAMPLES; i++) {
+            blackhole.consume(rules.points(types[i], dates[i], streaks[i]));
+        }
+    }
+
+    @Benchmark
+    public void level(Blackhole blackhole) {
+        for (int i = 0; i < SAMPLES; i++) {
+            blackhole.consume(rules.level(totals[i]));
+        }
+    }
+}
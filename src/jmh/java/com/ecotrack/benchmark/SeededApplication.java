@@ -0,0 +1,93 @@
+package com.ecotrack.benchmark;
+
+import com.ecotrack.EcoTrackApplication;
+import com.ecotrack.enums.ActionType;
+import com.ecotrack.model.User;
+import com.ecotrack.repository.EcoActionRepository;
+import com.ecotrack.service.EcoActionService;
+import com.ecotrack.service.UserService;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.LocalDate;
+import java.util.HashSet;
+
+/**
+ * Benchmark state: the full application running on an in-memory H2 database (MySQL mode) with one user
+ * whose history holds {@link #history} synthetic actions spread over the last few years.
+ * Caches are disabled so that every call measures the underlying work.
+ */
+@State(Scope.Benchmark)
+public class SeededApplication {
+
+    static final String EMAIL = "bench@ecotrack.local";
+
+    @Param({"10", "1000", "100000"})
+    public int history;
+
+    ConfigurableApplicationContext context;
+    EcoActionService ecoActionService;
+    UserService userService;
+    Long userId;
+    long[] actionIds;
+
+    @Setup(Level.Trial)
+    public void start() throws IOException {
+        // passed as command line arguments so they override application.properties
+        context = new SpringApplicationBuilder(EcoTrackApplication.class).run(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:bench;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--spring.jpa.show-sql=false",
+                "--spring.cache.type=none",
+                "--ecotrack.summary.reconcile-cron=-",
+                "--ecotrack.leaderboard.reseed-cron=-",
+                "--logging.level.root=WARN",
+                "--logging.level.com.ecotrack=WARN");
+        ecoActionService = context.getBean(EcoActionService.class);
+        userService = context.getBean(UserService.class);
+
+        User user = userService.register(User.builder()
+                .email(EMAIL)
+                .password("benchmark")
+                .name("Bench")
+                .roles(new HashSet<>())
+                .build());
+        userId = user.getId();
+        ecoActionService.importActions(userId, new StringReader(syntheticCsv(history)));
+
+        actionIds = context.getBean(EcoActionRepository.class)
+                .findByUserIdOrderByDateDescIdDesc(userId, PageRequest.of(0, history)).stream()
+                .mapToLong(action -> action.getId())
+                .toArray();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    private static String syntheticCsv(int rows) {
+        ActionType[] types = ActionType.values();
+        LocalDate today = LocalDate.now();
+        StringBuilder csv = new StringBuilder(rows * 40);
+        for (int i = 0; i < rows; i++) {
+            csv.append(types[i % types.length]).append(',')
+                    .append(today.minusDays(i % 1500)).append(',')
+                    .append(1 + i % 100).append(',')
+                    .append("synthetic action ").append(i).append('\n');
+        }
+        return csv.toString();
+    }
+}
@@ -0,0 +1,53 @@
+package com.ecotrack.enums;
+
+/**
+ * Badges a user unlocks with a streak: {@code length} consecutive days or weeks with at least one action,
+ * of one type or of any type. A badge is held while the user's actions contain such a streak.
+ */
+public enum Achievement {
+
+    WEEK_OF_ACTION("A week of action", StreakUnit.DAY, null, 7),
+    MONTH_OF_ACTION("A month of action", StreakUnit.DAY, null, 30),
+    CYCLING_30("30 days of cycling", StreakUnit.DAY, ActionType.CYCLING, 30),
+    PUBLIC_TRANSPORT_14("Two weeks on public transport", StreakUnit.DAY, ActionType.PUBLIC_TRANSPORT, 14),
+    RECYCLING_7("A week of recycling", StreakUnit.DAY, ActionType.RECYCLING, 7),
+    SEASON_OF_ACTION("12 active weeks in a row", StreakUnit.WEEK, null, 12),
+    YEAR_OF_ACTION("52 active weeks in a row", StreakUnit.WEEK, null, 52);
+
+    private final String label;
+    private final StreakUnit unit;
+    private final ActionType actionType;
+    private final int length;
+
+    Achievement(String label, StreakUnit unit, ActionType actionType, int length) {
+        this.label = label;
+        this.unit = unit;
+        this.actionType = actionType;
+        this.length = length;
+    }
+
+    /**
+     * Display name of the badge.
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    public StreakUnit getUnit() {
+        return unit;
+    }
+
+    /**
+     * Type the streak is made of, null for actions of any type.
+     */
+    public ActionType getActionType() {
+        return actionType;
+    }
+
+    /**
+     * Periods in a row needed.
+     */
+    public int getLength() {
+        return length;
+    }
+}
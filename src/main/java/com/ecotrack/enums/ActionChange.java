@@ -0,0 +1,10 @@
+package com.ecotrack.enums;
+
+/**
+ * Kinds of change to an eco action carried by action events.
+ */
+public enum ActionChange {
+    CREATED,
+    UPDATED,
+    DELETED
+}
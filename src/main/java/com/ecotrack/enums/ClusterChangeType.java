@@ -0,0 +1,15 @@
+package com.ecotrack.enums;
+
+/**
+ * Kinds of change announced to the other nodes of a cluster, each invalidating what nodes keep in memory of it.
+ */
+public enum ClusterChangeType {
+    /**
+     * A user's account or profile: cached user details.
+     */
+    USER,
+    /**
+     * A user's points: cached aggregates, rendered fragments, the leaderboard, open dashboards.
+     */
+    POINTS
+}
@@ -0,0 +1,33 @@
+package com.ecotrack.enums;
+
+/**
+ * File formats of the action export.
+ */
+public enum ExportFormat {
+
+    /**
+     * Comma separated values with a header line; a user's own export can be imported again.
+     */
+    CSV("text/csv", "csv"),
+
+    /**
+     * One JSON object per line.
+     */
+    NDJSON("application/x-ndjson", "ndjson");
+
+    private final String contentType;
+    private final String extension;
+
+    ExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+}
@@ -0,0 +1,23 @@
+package com.ecotrack.enums;
+
+/**
+ * Periods a streak counts in: consecutive days, or consecutive ISO weeks identified by their Monday.
+ */
+public enum StreakUnit {
+
+    DAY(1),
+    WEEK(7);
+
+    private final int days;
+
+    StreakUnit(int days) {
+        this.days = days;
+    }
+
+    /**
+     * Days between the first days of two consecutive periods.
+     */
+    public int getDays() {
+        return days;
+    }
+}
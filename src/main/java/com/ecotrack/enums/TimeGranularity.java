@@ -0,0 +1,86 @@
+package com.ecotrack.enums;
+
+import java.time.LocalDate;
+import java.time.temporal.WeekFields;
+
+/**
+ * Time buckets used for charts. Each date maps to a packed {@code int} key that sorts chronologically,
+ * so series can be aggregated without allocating a label per action; labels are only formatted for
+ * distinct buckets when rendering.
+ */
+public enum TimeGranularity {
+
+    /**
+     * Key is the epoch day; label "YYYY-MM-DD".
+     */
+    DAY {
+        @Override
+        public int key(LocalDate date) {
+            return (int) date.toEpochDay();
+        }
+
+        @Override
+        public String label(int key) {
+            return LocalDate.ofEpochDay(key).toString();
+        }
+    },
+
+    /**
+     * Key packs the ISO week-based year and week as {@code year << 6 | week}; label "YYYY-WW".
+     */
+    WEEK {
+        @Override
+        public int key(LocalDate date) {
+            return weekKey(date.get(WeekFields.ISO.weekBasedYear()), date.get(WeekFields.ISO.weekOfWeekBasedYear()));
+        }
+
+        @Override
+        public String label(int key) {
+            int week = key & 0x3F;
+            return (key >> 6) + (week < 10 ? "-0" : "-") + week;
+        }
+    },
+
+    /**
+     * Key is {@code year * 12 + month - 1}; label "YYYY-MM".
+     */
+    MONTH {
+        @Override
+        public int key(LocalDate date) {
+            return date.getYear() * 12 + date.getMonthValue() - 1;
+        }
+
+        @Override
+        public String label(int key) {
+            int month = key % 12 + 1;
+            return (key / 12) + (month < 10 ? "-0" : "-") + month;
+        }
+    };
+
+    /**
+     * Bucket key of a date.
+     *
+     * @param date the date
+     * @return key, increasing with time
+     */
+    public abstract int key(LocalDate date);
+
+    /**
+     * Human-readable label of a bucket key.
+     *
+     * @param key key returned by {@link #key(LocalDate)}
+     * @return label
+     */
+    public abstract String label(int key);
+
+    /**
+     * Packed {@link #WEEK} key of an ISO week-based year and week.
+     *
+     * @param weekYear ISO week-based year
+     * @param week ISO week (1-53)
+     * @return week key
+     */
+    public static int weekKey(int weekYear, int week) {
+        return weekYear << 6 | week;
+    }
+}
@@ -0,0 +1,69 @@
+package com.ecotrack.model;
+
+import com.ecotrack.enums.ActionChange;
+import com.ecotrack.enums.ActionType;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Outbox row of a change to an eco action, written in the transaction making the change and deleted in the
+ * transaction applying it to the user's activity, so each event takes effect exactly once. Events are applied
+ * in id order, which may differ from commit order; their effects do not depend on it.
+ */
+@Entity
+@Table(name = "action_events",
+        indexes = @Index(name = "idx_action_events_user_id", columnList = "user_id, id"))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ActionEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "change_type", nullable = false)
+    private ActionChange change;
+
+    /**
+     * Id of the changed action; null for actions written in JDBC batches.
+     */
+    @Column(name = "action_id")
+    private Long actionId;
+
+    /**
+     * Type of the action after the change, or of the deleted action.
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "action_type", nullable = false)
+    private ActionType actionType;
+
+    /**
+     * Date of the action after the change, or of the deleted action.
+     */
+    @Column(name = "action_date", nullable = false)
+    private LocalDate date;
+
+    /**
+     * Type before an update.
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "previous_action_type")
+    private ActionType previousActionType;
+
+    /**
+     * Date before an update.
+     */
+    @Column(name = "previous_action_date")
+    private LocalDate previousDate;
+}
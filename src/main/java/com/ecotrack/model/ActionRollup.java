@@ -0,0 +1,117 @@
+package com.ecotrack.model;
+
+import com.ecotrack.enums.ActionType;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Organisation-wide roll-up of the actions of one type logged on one day by the users of one cohort: their
+ * count, points and a histogram of the points per action. Maintained incrementally by every action write
+ * and summed into weeks and months when reported, so reports never scan {@code eco_actions}.
+ * <p>
+ * The histogram counts actions by points in fixed buckets (up to 1, 2, 5, 10, 20, 50 and 100 points); any set
+ * of rows can be merged by adding them, and percentiles are read from the merged buckets.
+ */
+@Entity
+@Table(name = "action_rollups",
+        uniqueConstraints = @UniqueConstraint(name = "uk_action_rollups_day_type_cohort",
+                columnNames = {"rollup_date", "action_type", "cohort"}))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ActionRollup {
+
+    /**
+     * Upper bounds of the histogram buckets, in points; the last bucket also takes anything above it.
+     */
+    public static final int[] BUCKET_BOUNDS = {1, 2, 5, 10, 20, 50, 100};
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "rollup_date", nullable = false)
+    private LocalDate day;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "action_type", nullable = false)
+    private ActionType actionType;
+
+    /**
+     * Month the users registered in, as "YYYY-MM", or "unknown" for users registered before it was recorded.
+     */
+    @Column(nullable = false, length = 16)
+    private String cohort;
+
+    @Column(name = "action_count", nullable = false)
+    private long actionCount;
+
+    @Column(nullable = false)
+    private long points;
+
+    @Column(name = "le_1", nullable = false)
+    private long le1;
+
+    @Column(name = "le_2", nullable = false)
+    private long le2;
+
+    @Column(name = "le_5", nullable = false)
+    private long le5;
+
+    @Column(name = "le_10", nullable = false)
+    private long le10;
+
+    @Column(name = "le_20", nullable = false)
+    private long le20;
+
+    @Column(name = "le_50", nullable = false)
+    private long le50;
+
+    @Column(name = "le_100", nullable = false)
+    private long le100;
+
+    /**
+     * Histogram as an array aligned with {@link #BUCKET_BOUNDS}.
+     */
+    public long[] histogram() {
+        return new long[]{le1, le2, le5, le10, le20, le50, le100};
+    }
+
+    /**
+     * Add actions to this roll-up.
+     *
+     * @param actions number of actions, negative to remove
+     * @param pointsPerAction points of each of them
+     */
+    public void add(long actions, int pointsPerAction) {
+        actionCount += actions;
+        points += actions * pointsPerAction;
+        switch (bucket(pointsPerAction)) {
+            case 0 -> le1 += actions;
+            case 1 -> le2 += actions;
+            case 2 -> le5 += actions;
+            case 3 -> le10 += actions;
+            case 4 -> le20 += actions;
+            case 5 -> le50 += actions;
+            default -> le100 += actions;
+        }
+    }
+
+    /**
+     * Histogram bucket of a points value.
+     */
+    public static int bucket(int points) {
+        for (int i = 0; i < BUCKET_BOUNDS.length - 1; i++) {
+            if (points <= BUCKET_BOUNDS[i]) {
+                return i;
+            }
+        }
+        return BUCKET_BOUNDS.length - 1;
+    }
+}
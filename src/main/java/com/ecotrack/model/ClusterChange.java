@@ -0,0 +1,62 @@
+package com.ecotrack.model;
+
+import com.ecotrack.enums.ClusterChangeType;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Change log row telling the other nodes of a cluster to drop what they keep in memory of a user. Written in
+ * the transaction making the change, read by every node polling the log and purged after a retention period.
+ */
+@Entity
+@Table(name = "cluster_changes",
+        indexes = @Index(name = "idx_cluster_changes_created_at", columnList = "created_at"))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClusterChange {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * Node that made the change; it has applied it already.
+     */
+    @Column(nullable = false, length = 36)
+    private String origin;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "change_type", nullable = false)
+    private ClusterChangeType type;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    /**
+     * Email of the user, the key of cached user details; set for user changes.
+     */
+    private String email;
+
+    /**
+     * Date of the actions whose points changed; set for points changes.
+     */
+    @Column(name = "points_date")
+    private LocalDate date;
+
+    /**
+     * Points added (positive) or removed (negative); set for points changes.
+     */
+    @Column(name = "points_delta")
+    private Long delta;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+}
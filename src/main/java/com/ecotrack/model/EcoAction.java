@@ -4,17 +4,23 @@ import com.ecotrack.enums.ActionType;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
-import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
 
 import java.time.LocalDate;
 
 /**
  * Entity representing a single eco-friendly action logged by a user.
+ * Equality is identity and {@code toString} skips the user, so neither can trigger a lazy load.
  */
 @Entity
-@Table(name = "eco_actions")
-@Data
+@Table(name = "eco_actions",
+        indexes = @Index(name = "idx_eco_actions_user_date_id", columnList = "user_id, date, id"))
+@Getter
+@Setter
+@ToString(exclude = "user")
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
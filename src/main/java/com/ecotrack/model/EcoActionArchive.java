@@ -0,0 +1,58 @@
+package com.ecotrack.model;
+
+import com.ecotrack.enums.ActionType;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Archived actions of a user: the count and points of all actions of one type within one ISO week, rolled up
+ * from {@link EcoAction} rows older than the retention period, which are then deleted.
+ */
+@Entity
+@Table(name = "eco_actions_archive",
+        uniqueConstraints = @UniqueConstraint(name = "uk_eco_actions_archive_user_week_type",
+                columnNames = {"user_id", "week_year", "week", "action_type"}))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EcoActionArchive {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    /**
+     * ISO week-based year, which differs from the calendar year around new year.
+     */
+    @Column(name = "week_year", nullable = false)
+    private int weekYear;
+
+    /**
+     * ISO week of the week-based year (1-53).
+     */
+    @Column(nullable = false)
+    private int week;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "action_type", nullable = false)
+    private ActionType actionType;
+
+    /**
+     * Number of archived actions.
+     */
+    @Column(name = "action_count", nullable = false)
+    private int actionCount;
+
+    /**
+     * Sum of the points of the archived actions.
+     */
+    @Column(nullable = false)
+    private long points;
+}
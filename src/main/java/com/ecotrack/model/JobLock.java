@@ -0,0 +1,44 @@
+package com.ecotrack.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Lease on a scheduled job shared by every node: the node that moves {@link #lockedUntil} into the future runs the
+ * job, the others skip it until the lease is released or expires.
+ */
+@Entity
+@Table(name = "job_locks")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class JobLock {
+
+    @Id
+    @Column(length = 64)
+    private String name;
+
+    /**
+     * End of the current lease; the job is free once it has passed.
+     */
+    @Column(name = "locked_until", nullable = false)
+    private Instant lockedUntil;
+
+    /**
+     * Start of the current or last lease.
+     */
+    @Column(name = "locked_at", nullable = false)
+    private Instant lockedAt;
+
+    /**
+     * Node holding the current or last lease.
+     */
+    @Column(name = "locked_by", nullable = false, length = 64)
+    private String lockedBy;
+}
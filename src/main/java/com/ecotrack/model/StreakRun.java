@@ -0,0 +1,65 @@
+package com.ecotrack.model;
+
+import com.ecotrack.enums.ActionType;
+import com.ecotrack.enums.StreakUnit;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * A maximal run of consecutive active days or weeks of a user, for one action type or for any type.
+ * Runs of the same user, unit and type never touch: adding the period between two runs merges them and
+ * removing a period inside a run splits it.
+ */
+@Entity
+@Table(name = "streak_runs",
+        indexes = {
+                @Index(name = "idx_streak_runs_user_end", columnList = "user_id, unit, end_day"),
+                @Index(name = "idx_streak_runs_user_start", columnList = "user_id, unit, start_day")
+        })
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StreakRun {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private StreakUnit unit;
+
+    /**
+     * Type the run is made of; null for actions of any type.
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "action_type")
+    private ActionType actionType;
+
+    /**
+     * First day of the run; a Monday for weekly runs.
+     */
+    @Column(name = "start_day", nullable = false)
+    private LocalDate startDay;
+
+    /**
+     * First day of the last period of the run.
+     */
+    @Column(name = "end_day", nullable = false)
+    private LocalDate endDay;
+
+    /**
+     * Number of periods in the run.
+     */
+    @Column(nullable = false)
+    private int length;
+}
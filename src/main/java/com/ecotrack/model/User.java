@@ -3,19 +3,25 @@ package com.ecotrack.model;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
-import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
 
+import java.time.Instant;
 import java.util.HashSet;
 import java.util.Set;
 
 /**
  * JPA entity representing an application user.
  * A user can register, sign in, and log eco-friendly actions.
+ * Equality is identity and {@code toString} skips the roles, so neither can trigger a lazy load.
  */
 @Entity
 @Table(name = "users")
-@Data
+@Getter
+@Setter
+@ToString(exclude = "roles")
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
@@ -47,10 +53,19 @@ public class User {
      */
     private String avatar;
 
+    /**
+     * Time of registration; null for users registered before it was recorded.
+     */
+    @Column(name = "created_at", updatable = false)
+    private Instant createdAt;
+
     /**
      * Roles assigned to the user. Spring Security expects a role prefix like ROLE_USER.
+     * Loaded lazily; the authentication and profile paths fetch them with the user
+     * (see {@link com.ecotrack.repository.UserRepository#findByEmail}).
      */
-    @ElementCollection(fetch = FetchType.EAGER)
+    @Builder.Default
+    @ElementCollection
     @CollectionTable(name = "user_roles", joinColumns = @JoinColumn(name = "user_id"))
     @Column(name = "role")
     private Set<String> roles = new HashSet<>();
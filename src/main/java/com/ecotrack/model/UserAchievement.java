@@ -0,0 +1,42 @@
+package com.ecotrack.model;
+
+import com.ecotrack.enums.Achievement;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * An achievement a user holds.
+ */
+@Entity
+@Table(name = "user_achievements",
+        uniqueConstraints = @UniqueConstraint(name = "uk_user_achievements_user_achievement",
+                columnNames = {"user_id", "achievement"}))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserAchievement {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Achievement achievement;
+
+    /**
+     * Day of the action that completed the earliest qualifying streak. Derived from the actions alone, so
+     * replaying them yields the same date.
+     */
+    @Column(name = "earned_on", nullable = false)
+    private LocalDate earnedOn;
+}
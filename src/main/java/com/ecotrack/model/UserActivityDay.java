@@ -0,0 +1,42 @@
+package com.ecotrack.model;
+
+import com.ecotrack.enums.ActionType;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Number of actions of one type a user logged on one day, maintained from action events. A row exists only
+ * while the count is positive, so its presence marks an active day.
+ */
+@Entity
+@Table(name = "user_activity_days",
+        uniqueConstraints = @UniqueConstraint(name = "uk_user_activity_days_user_day_type",
+                columnNames = {"user_id", "activity_date", "action_type"}))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserActivityDay {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "activity_date", nullable = false)
+    private LocalDate day;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "action_type", nullable = false)
+    private ActionType actionType;
+
+    @Column(nullable = false)
+    private int actions;
+}
@@ -0,0 +1,32 @@
+package com.ecotrack.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Progress of the activity consumer for one user. Locked while the user's events are applied or replayed,
+ * which serializes them across threads and application instances.
+ */
+@Entity
+@Table(name = "user_activity_state")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserActivityState {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    /**
+     * Time events were last applied or the activity last replayed.
+     */
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+}
@@ -0,0 +1,48 @@
+package com.ecotrack.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Running points total of a user, maintained incrementally whenever one of their actions is written.
+ * The per-week breakdown lives in {@link UserWeeklyPoints}.
+ */
+@Entity
+@Table(name = "user_points_summary")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserPointsSummary {
+
+    /**
+     * Id of the user this summary belongs to; one summary row per user.
+     */
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    /**
+     * Sum of the points of every action of the user.
+     */
+    @Column(nullable = false)
+    private long totalPoints;
+
+    /**
+     * Counter bumped by every write that changes anything the user sees of their actions or points; serves
+     * as the ETag of the user's API responses.
+     */
+    @Column(name = "data_version", nullable = false)
+    private long dataVersion;
+
+    /**
+     * Time of the last bump of {@link #dataVersion}.
+     */
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+}
@@ -0,0 +1,46 @@
+package com.ecotrack.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Points of a user within a single ISO week, maintained incrementally alongside {@link UserPointsSummary}.
+ */
+@Entity
+@Table(name = "user_weekly_points",
+        uniqueConstraints = @UniqueConstraint(name = "uk_user_weekly_points_user_week",
+                columnNames = {"user_id", "week_year", "week"}))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserWeeklyPoints {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    /**
+     * ISO week-based year, which differs from the calendar year around new year.
+     */
+    @Column(name = "week_year", nullable = false)
+    private int weekYear;
+
+    /**
+     * ISO week of the week-based year (1-53).
+     */
+    @Column(nullable = false)
+    private int week;
+
+    /**
+     * Sum of the points of the user's actions dated within this week.
+     */
+    @Column(nullable = false)
+    private long points;
+}
@@ -0,0 +1,57 @@
+package com.ecotrack.repository;
+
+import com.ecotrack.model.ActionEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * JDBC repository appending {@link ActionEvent}s to the outbox in batches, for the same reason as
+ * {@link EcoActionBatchRepository}. Participates in the surrounding JPA transaction.
+ */
+@Repository
+public class ActionEventBatchRepository {
+
+    private static final String INSERT_SQL = "insert into action_events (user_id, change_type, action_id, action_type,"
+            + " action_date, previous_action_type, previous_action_date) values (?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public ActionEventBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Insert events as a single JDBC batch. Generated ids are not read back.
+     *
+     * @param events events to insert; their ids are ignored
+     */
+    public void insertAll(List<ActionEvent> events) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ActionEvent event = events.get(i);
+                ps.setLong(1, event.getUserId());
+                ps.setString(2, event.getChange().name());
+                ps.setObject(3, event.getActionId(), Types.BIGINT);
+                ps.setString(4, event.getActionType().name());
+                ps.setDate(5, Date.valueOf(event.getDate()));
+                ps.setString(6, event.getPreviousActionType() == null ? null : event.getPreviousActionType().name());
+                ps.setDate(7, event.getPreviousDate() == null ? null : Date.valueOf(event.getPreviousDate()));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return events.size();
+            }
+        });
+    }
+}
@@ -0,0 +1,32 @@
+package com.ecotrack.repository;
+
+import com.ecotrack.model.ActionEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Repository for the action event outbox. Rows are inserted by {@link ActionEventBatchRepository}.
+ */
+@Repository
+public interface ActionEventRepository extends JpaRepository<ActionEvent, Long> {
+
+    /**
+     * Oldest unapplied events of a user, read through the (user_id, id) index.
+     *
+     * @param userId the owner
+     * @param limit maximum number of events
+     * @return events in id order
+     */
+    List<ActionEvent> findByUserIdOrderById(Long userId, Pageable limit);
+
+    /**
+     * Users with unapplied events.
+     */
+    @Query("select distinct e.userId from ActionEvent e")
+    List<Long> findUserIds();
+}
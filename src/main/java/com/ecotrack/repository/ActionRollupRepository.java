@@ -0,0 +1,66 @@
+package com.ecotrack.repository;
+
+import com.ecotrack.model.ActionRollup;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Repository for the organisation-wide action roll-ups.
+ */
+@Repository
+public interface ActionRollupRepository extends JpaRepository<ActionRollup, Long> {
+
+    /**
+     * Add a delta to the roll-up of its day, type and cohort, creating it if it does not exist yet.
+     *
+     * @param delta counts to add (negative when actions are removed); its id is ignored
+     */
+    @Modifying
+    @Query(value = "insert into action_rollups (rollup_date, action_type, cohort, action_count, points,"
+            + " le_1, le_2, le_5, le_10, le_20, le_50, le_100) values (:#{#delta.day},"
+            + " :#{#delta.actionType.name()}, :#{#delta.cohort}, :#{#delta.actionCount}, :#{#delta.points},"
+            + " :#{#delta.le1}, :#{#delta.le2}, :#{#delta.le5}, :#{#delta.le10}, :#{#delta.le20}, :#{#delta.le50},"
+            + " :#{#delta.le100}) on duplicate key update action_count = action_count + :#{#delta.actionCount},"
+            + " points = points + :#{#delta.points}, le_1 = le_1 + :#{#delta.le1}, le_2 = le_2 + :#{#delta.le2},"
+            + " le_5 = le_5 + :#{#delta.le5}, le_10 = le_10 + :#{#delta.le10}, le_20 = le_20 + :#{#delta.le20},"
+            + " le_50 = le_50 + :#{#delta.le50}, le_100 = le_100 + :#{#delta.le100}",
+            nativeQuery = true)
+    void add(@Param("delta") ActionRollup delta);
+
+    /**
+     * Read every roll-up, holding write locks on them (on InnoDB also on the gaps between them, so no roll-up
+     * can be added) until the transaction ends.
+     *
+     * @return all roll-ups
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select r from ActionRollup r")
+    List<ActionRollup> lockAll();
+
+    /**
+     * Roll-ups of a date range, read through the unique index on (rollup_date, action_type, cohort).
+     *
+     * @param from first day, inclusive
+     * @param to last day, inclusive
+     * @return matching roll-ups, unordered
+     */
+    List<ActionRollup> findByDayBetween(LocalDate from, LocalDate to);
+
+    /**
+     * Roll-ups of one cohort in a date range.
+     *
+     * @param from first day, inclusive
+     * @param to last day, inclusive
+     * @param cohort the cohort
+     * @return matching roll-ups, unordered
+     */
+    List<ActionRollup> findByDayBetweenAndCohort(LocalDate from, LocalDate to, String cohort);
+}
@@ -0,0 +1,58 @@
+package com.ecotrack.repository;
+
+import com.ecotrack.model.ClusterChange;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * JDBC repository appending {@link ClusterChange}s to the change log in batches, for the same reason as
+ * {@link EcoActionBatchRepository}. Participates in the surrounding JPA transaction.
+ */
+@Repository
+public class ClusterChangeBatchRepository {
+
+    private static final String INSERT_SQL = "insert into cluster_changes (origin, change_type, user_id, email,"
+            + " points_date, points_delta, created_at) values (?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public ClusterChangeBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Insert changes as a single JDBC batch. Generated ids are not read back.
+     *
+     * @param changes changes to insert; their ids are ignored
+     */
+    public void insertAll(List<ClusterChange> changes) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ClusterChange change = changes.get(i);
+                ps.setString(1, change.getOrigin());
+                ps.setString(2, change.getType().name());
+                ps.setLong(3, change.getUserId());
+                ps.setString(4, change.getEmail());
+                ps.setDate(5, change.getDate() == null ? null : Date.valueOf(change.getDate()));
+                ps.setObject(6, change.getDelta(), Types.BIGINT);
+                ps.setTimestamp(7, Timestamp.from(change.getCreatedAt()));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return changes.size();
+            }
+        });
+    }
+}
@@ -0,0 +1,43 @@
+package com.ecotrack.repository;
+
+import com.ecotrack.model.ClusterChange;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Repository for the cluster change log. Rows are inserted by {@link ClusterChangeBatchRepository}.
+ */
+@Repository
+public interface ClusterChangeRepository extends JpaRepository<ClusterChange, Long> {
+
+    /**
+     * Changes logged after a given one.
+     *
+     * @param id id of the last change already read
+     * @param limit maximum number of changes
+     * @return changes in id order
+     */
+    List<ClusterChange> findByIdGreaterThanOrderById(long id, Pageable limit);
+
+    /**
+     * Id of the latest change, null when the log is empty.
+     */
+    @Query("select max(c.id) from ClusterChange c")
+    Long findMaxId();
+
+    /**
+     * Delete changes logged before a point in time.
+     *
+     * @return number of changes deleted
+     */
+    @Modifying
+    @Query("delete from ClusterChange c where c.createdAt < :before")
+    int deleteByCreatedAtBefore(@Param("before") Instant before);
+}
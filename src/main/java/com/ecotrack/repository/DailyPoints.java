@@ -0,0 +1,13 @@
+package com.ecotrack.repository;
+
+import java.time.LocalDate;
+
+/**
+ * Projection holding the sum of points logged by a user on a single day.
+ */
+public interface DailyPoints {
+
+    LocalDate getDate();
+
+    Long getPoints();
+}
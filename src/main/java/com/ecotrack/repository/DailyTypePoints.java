@@ -0,0 +1,19 @@
+package com.ecotrack.repository;
+
+import com.ecotrack.enums.ActionType;
+
+import java.time.LocalDate;
+
+/**
+ * Projection holding the number and points of the actions of one type logged by a user on a single day.
+ */
+public interface DailyTypePoints {
+
+    LocalDate getDate();
+
+    ActionType getActionType();
+
+    Long getActions();
+
+    Long getPoints();
+}
@@ -0,0 +1,91 @@
+package com.ecotrack.repository;
+
+import com.ecotrack.model.EcoActionArchive;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Repository for the weekly roll-ups of archived actions.
+ */
+@Repository
+public interface EcoActionArchiveRepository extends JpaRepository<EcoActionArchive, Long> {
+
+    /**
+     * Add archived actions to a roll-up, creating it if it does not exist yet.
+     *
+     * @param userId owner of the actions
+     * @param weekYear ISO week-based year
+     * @param week ISO week
+     * @param actionType action type name
+     * @param actions number of actions
+     * @param points sum of their points
+     */
+    @Modifying
+    @Query(value = "insert into eco_actions_archive (user_id, week_year, week, action_type, action_count, points) "
+            + "values (:userId, :weekYear, :week, :actionType, :actions, :points) "
+            + "on duplicate key update action_count = action_count + :actions, points = points + :points",
+            nativeQuery = true)
+    void addActions(@Param("userId") Long userId,
+                    @Param("weekYear") int weekYear,
+                    @Param("week") int week,
+                    @Param("actionType") String actionType,
+                    @Param("actions") int actions,
+                    @Param("points") long points);
+
+    /**
+     * Archived weeks of a user.
+     *
+     * @param userId owner of the actions
+     * @return the user's roll-ups, unordered
+     */
+    List<EcoActionArchive> findByUserId(Long userId);
+
+    /**
+     * Sum the archived points of a user.
+     *
+     * @param userId owner of the actions
+     * @return archived points, zero when nothing is archived
+     */
+    @Query("select coalesce(sum(a.points), 0) from EcoActionArchive a where a.userId = :userId")
+    long sumPointsByUserId(@Param("userId") Long userId);
+
+    /**
+     * Count the archived actions of a user.
+     *
+     * @param userId owner of the actions
+     * @return archived actions, zero when nothing is archived
+     */
+    @Query("select coalesce(sum(a.actionCount), 0) from EcoActionArchive a where a.userId = :userId")
+    long countActionsByUserId(@Param("userId") Long userId);
+
+    /**
+     * Count every user's archived actions.
+     *
+     * @return archived actions, zero when nothing is archived
+     */
+    @Query("select coalesce(sum(a.actionCount), 0) from EcoActionArchive a")
+    long countActions();
+
+    /**
+     * Sum the archived points of a user per ISO week.
+     *
+     * @param userId owner of the actions
+     * @return one row per archived week, unordered
+     */
+    @Query("select a.weekYear as weekYear, a.week as week, sum(a.points) as points from EcoActionArchive a "
+            + "where a.userId = :userId group by a.weekYear, a.week")
+    List<WeeklyPoints> sumPointsByUserIdGroupByWeek(@Param("userId") Long userId);
+
+    /**
+     * Archived points of every user with archived actions, computed in a single GROUP BY.
+     *
+     * @return one row per user
+     */
+    @Query("select a.userId as userId, sum(a.points) as points from EcoActionArchive a group by a.userId")
+    List<UserPoints> sumPointsGroupByUser();
+}
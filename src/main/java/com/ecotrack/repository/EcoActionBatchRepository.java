@@ -0,0 +1,56 @@
+package com.ecotrack.repository;
+
+import com.ecotrack.model.EcoAction;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * JDBC repository for inserting eco actions in batches. {@link EcoAction} uses IDENTITY ids, which stops
+ * Hibernate from batching inserts, so bulk paths write through plain JDBC batches instead.
+ * Participates in the surrounding JPA transaction.
+ */
+@Repository
+public class EcoActionBatchRepository {
+
+    private static final String INSERT_SQL =
+            "insert into eco_actions (user_id, action_type, date, description, points) values (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public EcoActionBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Insert actions for a user as a single JDBC batch. Generated ids are not read back.
+     *
+     * @param userId owner of every action
+     * @param actions actions to insert; their user field is ignored
+     */
+    public void insertAll(Long userId, List<EcoAction> actions) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                EcoAction action = actions.get(i);
+                ps.setLong(1, userId);
+                ps.setString(2, action.getActionType().name());
+                ps.setDate(3, Date.valueOf(action.getDate()));
+                ps.setString(4, action.getDescription());
+                ps.setInt(5, action.getPoints());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return actions.size();
+            }
+        });
+    }
+}
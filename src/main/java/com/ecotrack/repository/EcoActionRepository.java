@@ -2,10 +2,20 @@ package com.ecotrack.repository;
 
 import com.ecotrack.model.EcoAction;
 import com.ecotrack.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repository for CRUD operations on eco actions.
@@ -13,6 +23,13 @@ import java.util.List;
 @Repository
 public interface EcoActionRepository extends JpaRepository<EcoAction, Long> {
 
+    /**
+     * Rows fetched per round trip by the export streams. On MySQL this needs {@code useCursorFetch=true} in the
+     * connection URL; without it Connector/J reads the whole result into memory. That flag turns every statement
+     * into a server-side prepared statement, so the URL also caches them ({@code cachePrepStmts}).
+     */
+    int EXPORT_FETCH_SIZE = 1000;
+
     /**
      * Return all eco actions for a given user ordered by date descending.
      *
@@ -20,4 +37,178 @@ public interface EcoActionRepository extends JpaRepository<EcoAction, Long> {
      * @return list of actions
      */
     List<EcoAction> findByUserOrderByDateDesc(User user);
+
+    /**
+     * Return the newest actions of a user, ordered by (date desc, id desc). Only the page size of the
+     * pageable is meant to be used; deeper pages go through {@link #findPageAfter}.
+     *
+     * @param userId id of the owner of the actions
+     * @param pageable first page request limiting the number of rows
+     * @return newest actions
+     */
+    List<EcoAction> findByUserIdOrderByDateDescIdDesc(Long userId, Pageable pageable);
+
+    /**
+     * Keyset page: the actions of a user strictly after the given (date, id) position in
+     * (date desc, id desc) order. Served by the (user_id, date, id) index without an OFFSET scan.
+     *
+     * @param userId id of the owner of the actions
+     * @param date date of the last action of the previous page
+     * @param id id of the last action of the previous page
+     * @param pageable first page request limiting the number of rows
+     * @return next actions
+     */
+    @Query("select a from EcoAction a where a.user.id = :userId "
+            + "and (a.date < :date or (a.date = :date and a.id < :id)) "
+            + "order by a.date desc, a.id desc")
+    List<EcoAction> findPageAfter(@Param("userId") Long userId,
+                                  @Param("date") LocalDate date,
+                                  @Param("id") Long id,
+                                  Pageable pageable);
+
+    /**
+     * Find a single action only if it belongs to the given user.
+     *
+     * @param id action id
+     * @param userId id of the expected owner
+     * @return the action, empty if it does not exist or belongs to someone else
+     */
+    Optional<EcoAction> findByIdAndUserId(Long id, Long userId);
+
+    /**
+     * Sum the points of every action logged by a user without loading the actions.
+     *
+     * @param userId id of the owner of the actions
+     * @return total points, zero when the user has no actions
+     */
+    @Query("select coalesce(sum(a.points), 0) from EcoAction a where a.user.id = :userId")
+    long sumPointsByUserId(@Param("userId") Long userId);
+
+    /**
+     * Sum points per day for a user, ordered by date ascending. The result has one row per distinct
+     * day, which keeps it small enough to fold into ISO weeks in memory.
+     *
+     * @param userId id of the owner of the actions
+     * @return daily point sums
+     */
+    @Query("select a.date as date, sum(a.points) as points from EcoAction a "
+            + "where a.user.id = :userId group by a.date order by a.date")
+    List<DailyPoints> sumPointsByUserIdGroupByDate(@Param("userId") Long userId);
+
+    /**
+     * Sum points per day for a user from a given date on, ordered by date ascending.
+     *
+     * @param userId id of the owner of the actions
+     * @param from first date included
+     * @return daily point sums
+     */
+    @Query("select a.date as date, sum(a.points) as points from EcoAction a "
+            + "where a.user.id = :userId and a.date >= :from group by a.date order by a.date")
+    List<DailyPoints> sumPointsByUserIdGroupByDateSince(@Param("userId") Long userId, @Param("from") LocalDate from);
+
+    /**
+     * Days on which a user logged at least one action, within a range. Served by the (user_id, date) index.
+     *
+     * @param userId id of the owner of the actions
+     * @param from first date included
+     * @param to last date included
+     * @param excludeId action to leave out, or null
+     * @return distinct dates, unordered
+     */
+    @Query("select distinct a.date from EcoAction a where a.user.id = :userId and a.date between :from and :to "
+            + "and (:excludeId is null or a.id <> :excludeId)")
+    List<LocalDate> findActiveDates(@Param("userId") Long userId, @Param("from") LocalDate from,
+                                    @Param("to") LocalDate to, @Param("excludeId") Long excludeId);
+
+    /**
+     * Total points of every user with at least one action, computed in a single GROUP BY.
+     * Meant for seeding in-memory structures, not for per-request use.
+     *
+     * @return one row per user
+     */
+    @Query("select a.user.id as userId, sum(a.points) as points from EcoAction a group by a.user.id")
+    List<UserPoints> sumPointsGroupByUser();
+
+    /**
+     * Count and sum a user's actions per day and type before a date, for archiving them.
+     *
+     * @param userId id of the owner of the actions
+     * @param before first date excluded
+     * @return one row per day and type
+     */
+    @Query("select a.date as date, a.actionType as actionType, count(a) as actions, sum(a.points) as points "
+            + "from EcoAction a where a.user.id = :userId and a.date < :before group by a.date, a.actionType")
+    List<DailyTypePoints> sumByUserIdGroupByDateAndTypeBefore(@Param("userId") Long userId,
+                                                              @Param("before") LocalDate before);
+
+    /**
+     * Count a user's actions per day and type, for replaying the user's activity.
+     *
+     * @param userId id of the owner of the actions
+     * @return one row per day and type
+     */
+    @Query("select a.date as date, a.actionType as actionType, count(a) as actions, sum(a.points) as points "
+            + "from EcoAction a where a.user.id = :userId group by a.date, a.actionType")
+    List<DailyTypePoints> sumByUserIdGroupByDateAndType(@Param("userId") Long userId);
+
+    /**
+     * Count a user's actions per day, type and points value, for rebuilding the action roll-ups. Each row's
+     * points divided by its actions is the points value of every action in it.
+     *
+     * @param userId id of the owner of the actions
+     * @return one row per day, type and points value
+     */
+    @Query("select a.date as date, a.actionType as actionType, count(a) as actions, sum(a.points) as points "
+            + "from EcoAction a where a.user.id = :userId group by a.date, a.actionType, a.points")
+    List<DailyTypePoints> countByUserIdGroupByDateTypeAndPoints(@Param("userId") Long userId);
+
+    /**
+     * Lock a user's actions dated before a day, and the index range holding them, until the transaction ends.
+     * A locking read sees the latest committed rows and waits for uncommitted ones; meanwhile no action can be
+     * added to the range, changed or deleted.
+     *
+     * @param userId id of the owner of the actions
+     * @param before first date not locked
+     * @return ids of the locked actions
+     */
+    @Query(value = "select id from eco_actions where user_id = :userId and date < :before for update",
+            nativeQuery = true)
+    List<Long> lockIdsByUserIdBefore(@Param("userId") Long userId, @Param("before") LocalDate before);
+
+    /**
+     * Delete a user's actions before a date once they are archived.
+     *
+     * @param userId id of the owner of the actions
+     * @param before first date kept
+     * @return number of deleted actions
+     */
+    @Modifying
+    @Query("delete from EcoAction a where a.user.id = :userId and a.date < :before")
+    int deleteByUserIdBefore(@Param("userId") Long userId, @Param("before") LocalDate before);
+
+    /**
+     * Stream a user's actions oldest first, fetched {@link #EXPORT_FETCH_SIZE} rows at a time and loaded
+     * read-only. Must be consumed and closed within a transaction.
+     *
+     * @param userId id of the owner of the actions
+     * @return open stream over the actions
+     */
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE),
+            @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select a from EcoAction a where a.user.id = :userId order by a.date, a.id")
+    Stream<EcoAction> streamByUserId(@Param("userId") Long userId);
+
+    /**
+     * Stream every user's actions by user and date, like {@link #streamByUserId(Long)}.
+     *
+     * @return open stream over all actions
+     */
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE),
+            @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select a from EcoAction a order by a.user.id, a.date, a.id")
+    Stream<EcoAction> streamAll();
 }
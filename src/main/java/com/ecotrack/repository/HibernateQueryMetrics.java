@@ -0,0 +1,70 @@
+package com.ecotrack.repository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.QueryStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-query metrics read from Hibernate statistics ({@code hibernate.generate_statistics}): execution count and
+ * time as {@code ecotrack.hibernate.query} and returned rows as {@code ecotrack.hibernate.query.rows}, tagged
+ * with the query string. Hibernate already counts per query; the meters only read those counters when scraped.
+ * Queries are picked up on a schedule rather than from a per-load event listener, which would walk every
+ * query's statistics on every entity load.
+ */
+@Component
+public class HibernateQueryMetrics implements MeterBinder {
+
+    private final Statistics statistics;
+    private final Set<String> registered = ConcurrentHashMap.newKeySet();
+    private volatile MeterRegistry registry;
+
+    @Autowired
+    public HibernateQueryMetrics(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.registry = registry;
+        registerNewQueries();
+    }
+
+    /**
+     * Register meters for queries executed for the first time since the last run.
+     */
+    @Scheduled(fixedDelayString = "${ecotrack.metrics.query-scan-interval-ms:30000}")
+    public void registerNewQueries() {
+        MeterRegistry target = registry;
+        if (target == null || !statistics.isStatisticsEnabled()) {
+            return;
+        }
+        for (String query : statistics.getQueries()) {
+            if (registered.add(query)) {
+                QueryStatistics queryStatistics = statistics.getQueryStatistics(query);
+                FunctionTimer.builder("ecotrack.hibernate.query", queryStatistics,
+                                QueryStatistics::getExecutionCount,
+                                QueryStatistics::getExecutionTotalTime, TimeUnit.MILLISECONDS)
+                        .description("Executions of a JPQL/SQL query")
+                        .tag("query", query)
+                        .register(target);
+                FunctionCounter.builder("ecotrack.hibernate.query.rows", queryStatistics,
+                                QueryStatistics::getExecutionRowCount)
+                        .description("Rows returned by a JPQL/SQL query")
+                        .tag("query", query)
+                        .register(target);
+            }
+        }
+    }
+}
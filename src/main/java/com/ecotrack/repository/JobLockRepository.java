@@ -0,0 +1,46 @@
+package com.ecotrack.repository;
+
+import com.ecotrack.model.JobLock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+
+/**
+ * Repository for the leases on shared scheduled jobs. Every statement is a single-row conditional write, so nodes
+ * racing for a lease are decided by the database.
+ */
+@Repository
+public interface JobLockRepository extends JpaRepository<JobLock, String> {
+
+    /**
+     * Create a job's lock row, free, unless it exists.
+     */
+    @Modifying
+    @Query(value = "insert ignore into job_locks (name, locked_until, locked_at, locked_by)"
+            + " values (:name, :now, :now, '')", nativeQuery = true)
+    void createIfMissing(@Param("name") String name, @Param("now") Instant now);
+
+    /**
+     * Take the lease on a job if it is free.
+     *
+     * @return 1 when this node holds the lease now, 0 when another node does
+     */
+    @Modifying
+    @Query("update JobLock l set l.lockedUntil = :until, l.lockedAt = :now, l.lockedBy = :node"
+            + " where l.name = :name and l.lockedUntil <= :now")
+    int acquire(@Param("name") String name, @Param("node") String node, @Param("now") Instant now,
+                @Param("until") Instant until);
+
+    /**
+     * Shorten a lease this node holds.
+     *
+     * @param until when the job becomes free
+     */
+    @Modifying
+    @Query("update JobLock l set l.lockedUntil = :until where l.name = :name and l.lockedBy = :node")
+    void release(@Param("name") String name, @Param("node") String node, @Param("until") Instant until);
+}
@@ -0,0 +1,143 @@
+package com.ecotrack.repository;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stand-in for replication when the primary and the replicas are in-memory H2 databases (the replicas-local
+ * profile): copies the primary into every replica on a fixed delay and records when the copy was taken in a
+ * {@code replica_status} table, from which the lag query tells how far behind a replica is. Enabled with
+ * {@code ecotrack.datasource.replicas.local-copy.enabled=true}.
+ */
+@Component
+@ConditionalOnProperty(name = "ecotrack.datasource.replicas.local-copy.enabled", havingValue = "true")
+public class LocalReplicaCopier {
+
+    private static final Logger log = LoggerFactory.getLogger(LocalReplicaCopier.class);
+
+    private static final String STATUS_TABLE = "replica_status";
+
+    private final HikariDataSource primaryDataSource;
+    private final List<String> urls;
+
+    /**
+     * Takes the entity manager factory only so that the schema exists before the first copy.
+     */
+    @Autowired
+    public LocalReplicaCopier(HikariDataSource primaryDataSource,
+                              EntityManagerFactory entityManagerFactory,
+                              @Value("${ecotrack.datasource.replicas.urls}") List<String> urls) {
+        this.primaryDataSource = primaryDataSource;
+        this.urls = urls;
+        copy();
+    }
+
+    /**
+     * Bring every replica up to the primary as it is now. The first copy creates the schema; later ones replace
+     * the rows in a single transaction, so reads on a replica never see it half copied.
+     */
+    @Scheduled(fixedDelayString = "${ecotrack.datasource.replicas.local-copy.interval-ms:2000}")
+    public void copy() {
+        Timestamp copiedAt = new Timestamp(System.currentTimeMillis());
+        List<String> script = new ArrayList<>();
+        try (Connection connection = primaryDataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SCRIPT NOPASSWORDS NOSETTINGS")) {
+            while (rs.next()) {
+                script.add(rs.getString(1));
+            }
+        } catch (SQLException e) {
+            log.warn("Could not script the primary database: {}", e.getMessage());
+            return;
+        }
+        for (String url : urls) {
+            try (Connection connection = DriverManager.getConnection(url.trim(), primaryDataSource.getUsername(),
+                    primaryDataSource.getPassword())) {
+                if (tables(connection).contains(STATUS_TABLE)) {
+                    replaceRows(connection, script, copiedAt);
+                } else {
+                    create(connection, script, copiedAt);
+                }
+            } catch (SQLException e) {
+                log.warn("Could not copy the primary database to {}: {}", url.trim(), e.getMessage());
+            }
+        }
+    }
+
+    private static void create(Connection connection, List<String> script, Timestamp copiedAt) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+            for (String sql : script) {
+                statement.execute(sql);
+            }
+            statement.execute("CREATE TABLE " + STATUS_TABLE + " (copied_at TIMESTAMP NOT NULL)");
+        }
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO " + STATUS_TABLE + " (copied_at) VALUES (?)")) {
+            insert.setTimestamp(1, copiedAt);
+            insert.executeUpdate();
+        }
+    }
+
+    private static void replaceRows(Connection connection, List<String> script, Timestamp copiedAt)
+            throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            // rows are deleted and inserted table by table, in no particular order
+            statement.execute("SET REFERENTIAL_INTEGRITY FALSE");
+            connection.setAutoCommit(false);
+            try {
+                for (String table : tables(connection)) {
+                    if (!table.equals(STATUS_TABLE)) {
+                        statement.execute("DELETE FROM \"" + table + "\"");
+                    }
+                }
+                for (String sql : script) {
+                    if (sql.startsWith("INSERT INTO")) {
+                        statement.execute(sql);
+                    }
+                }
+                try (PreparedStatement update = connection.prepareStatement(
+                        "UPDATE " + STATUS_TABLE + " SET copied_at = ?")) {
+                    update.setTimestamp(1, copiedAt);
+                    update.executeUpdate();
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+                statement.execute("SET REFERENTIAL_INTEGRITY TRUE");
+            }
+        }
+    }
+
+    private static List<String> tables(Connection connection) throws SQLException {
+        List<String> tables = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT table_name FROM information_schema.tables"
+                     + " WHERE table_schema = 'public' AND table_type = 'BASE TABLE'")) {
+            while (rs.next()) {
+                tables.add(rs.getString(1));
+            }
+        }
+        return tables;
+    }
+}
@@ -0,0 +1,189 @@
+package com.ecotrack.repository;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * DataSource sending read-only transactions to read replicas and everything else to the primary.
+ * Must be wrapped in a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy} so that the
+ * connection is fetched once the transaction's read-only flag is known.
+ * <p>
+ * Replicas are picked round robin among the healthy ones. A replica is taken out of rotation when it fails to
+ * hand out a connection or, on the periodic check, lags the primary by more than {@code maxLag}; reads fall
+ * back to the primary when no replica is healthy. After a signed-in user commits a write, that user's reads
+ * stay on the primary for {@code maxLag} so they see their own changes.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final Duration maxLag;
+    private final String lagQuery;
+    private final Cache<String, Boolean> recentWriters;
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * @param primary primary datasource
+     * @param replicas replica pools, owned and closed by this datasource
+     * @param maxLag replication lag above which a replica leaves rotation
+     * @param lagQuery query returning a {@code Seconds_Behind_Source} column on a replica; blank to only check
+     *                 connectivity
+     */
+    public ReplicaRoutingDataSource(DataSource primary, List<HikariDataSource> replicas, Duration maxLag,
+                                    String lagQuery) {
+        this.primary = primary;
+        this.replicas = replicas.stream().map(Replica::new).toList();
+        this.maxLag = maxLag;
+        this.lagQuery = lagQuery;
+        this.recentWriters = Caffeine.newBuilder()
+                .expireAfterWrite(maxLag)
+                .maximumSize(100_000)
+                .build();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            String user = currentUser();
+            if (user == null || recentWriters.getIfPresent(user) == null) {
+                Connection connection = replicaConnection();
+                if (connection != null) {
+                    return connection;
+                }
+            }
+        } else {
+            rememberWriter();
+        }
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Replica routing uses the configured credentials");
+    }
+
+    /**
+     * Re-evaluate every replica's health and replication lag.
+     */
+    @Scheduled(fixedDelayString = "${ecotrack.datasource.replicas.check-interval-ms:5000}")
+    public void checkReplicas() {
+        for (Replica replica : replicas) {
+            boolean healthy;
+            try (Connection connection = replica.dataSource.getConnection()) {
+                healthy = lagQuery.isBlank()
+                        ? connection.isValid(VALIDATION_TIMEOUT_SECONDS)
+                        : withinMaxLag(connection, replica);
+            } catch (SQLException e) {
+                log.debug("Replica {} check failed: {}", replica.dataSource.getPoolName(), e.getMessage());
+                healthy = false;
+            }
+            replica.setHealthy(healthy);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        replicas.forEach(replica -> replica.dataSource.close());
+    }
+
+    private Connection replicaConnection() {
+        int size = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(size, 1));
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (!replica.healthy) {
+                continue;
+            }
+            try {
+                return replica.dataSource.getConnection();
+            } catch (SQLException e) {
+                log.debug("Replica {} unavailable: {}", replica.dataSource.getPoolName(), e.getMessage());
+                replica.setHealthy(false);
+            }
+        }
+        return null;
+    }
+
+    private boolean withinMaxLag(Connection connection, Replica replica) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(lagQuery)) {
+            if (!rs.next()) {
+                // not replicating from anything: a stand-in, always current
+                return true;
+            }
+            long lagSeconds = rs.getLong("Seconds_Behind_Source");
+            if (rs.wasNull()) {
+                log.warn("Replica {} is not replicating", replica.dataSource.getPoolName());
+                return false;
+            }
+            return lagSeconds <= maxLag.toSeconds();
+        }
+    }
+
+    /**
+     * Keep the signed-in user's reads on the primary for a while once the current transaction commits.
+     */
+    private void rememberWriter() {
+        String user = currentUser();
+        if (user == null || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                recentWriters.put(user, Boolean.TRUE);
+            }
+        });
+    }
+
+    private static String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || authentication instanceof AnonymousAuthenticationToken
+                || !authentication.isAuthenticated()) {
+            return null;
+        }
+        return authentication.getName();
+    }
+
+    private static final class Replica {
+
+        private final HikariDataSource dataSource;
+        private volatile boolean healthy = true;
+
+        private Replica(HikariDataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        private void setHealthy(boolean healthy) {
+            if (this.healthy != healthy) {
+                log.info("Replica {} is now {}", dataSource.getPoolName(), healthy ? "in rotation" : "out of rotation");
+            }
+            this.healthy = healthy;
+        }
+    }
+}
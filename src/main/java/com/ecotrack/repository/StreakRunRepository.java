@@ -0,0 +1,54 @@
+package com.ecotrack.repository;
+
+import com.ecotrack.enums.ActionType;
+import com.ecotrack.enums.StreakUnit;
+import com.ecotrack.model.StreakRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+/**
+ * Repository for streak runs. A null action type selects the runs of actions of any type.
+ */
+@Repository
+public interface StreakRunRepository extends JpaRepository<StreakRun, Long> {
+
+    Optional<StreakRun> findByUserIdAndUnitAndActionTypeAndEndDay(Long userId, StreakUnit unit, ActionType actionType,
+                                                                  LocalDate endDay);
+
+    Optional<StreakRun> findByUserIdAndUnitAndActionTypeAndStartDay(Long userId, StreakUnit unit,
+                                                                    ActionType actionType, LocalDate startDay);
+
+    /**
+     * The run containing a day, if any.
+     */
+    Optional<StreakRun> findByUserIdAndUnitAndActionTypeAndStartDayLessThanEqualAndEndDayGreaterThanEqual(
+            Long userId, StreakUnit unit, ActionType actionType, LocalDate day, LocalDate sameDay);
+
+    /**
+     * Earliest run of at least a given length.
+     */
+    Optional<StreakRun> findFirstByUserIdAndUnitAndActionTypeAndLengthGreaterThanEqualOrderByStartDay(
+            Long userId, StreakUnit unit, ActionType actionType, int length);
+
+    /**
+     * Latest run.
+     */
+    Optional<StreakRun> findFirstByUserIdAndUnitAndActionTypeOrderByEndDayDesc(Long userId, StreakUnit unit,
+                                                                              ActionType actionType);
+
+    /**
+     * Longest run.
+     */
+    Optional<StreakRun> findFirstByUserIdAndUnitAndActionTypeOrderByLengthDesc(Long userId, StreakUnit unit,
+                                                                              ActionType actionType);
+
+    @Modifying
+    @Query("delete from StreakRun r where r.userId = :userId")
+    int deleteByUserId(@Param("userId") Long userId);
+}
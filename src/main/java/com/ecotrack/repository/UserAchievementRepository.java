@@ -0,0 +1,27 @@
+package com.ecotrack.repository;
+
+import com.ecotrack.enums.Achievement;
+import com.ecotrack.model.UserAchievement;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository for the achievements users hold.
+ */
+@Repository
+public interface UserAchievementRepository extends JpaRepository<UserAchievement, Long> {
+
+    Optional<UserAchievement> findByUserIdAndAchievement(Long userId, Achievement achievement);
+
+    List<UserAchievement> findByUserIdOrderByEarnedOn(Long userId);
+
+    @Modifying
+    @Query("delete from UserAchievement a where a.userId = :userId")
+    int deleteByUserId(@Param("userId") Long userId);
+}
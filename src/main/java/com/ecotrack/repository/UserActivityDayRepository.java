@@ -0,0 +1,30 @@
+package com.ecotrack.repository;
+
+import com.ecotrack.enums.ActionType;
+import com.ecotrack.model.UserActivityDay;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+/**
+ * Repository for the per-user, per-day action counts behind streaks.
+ */
+@Repository
+public interface UserActivityDayRepository extends JpaRepository<UserActivityDay, Long> {
+
+    Optional<UserActivityDay> findByUserIdAndDayAndActionType(Long userId, LocalDate day, ActionType actionType);
+
+    /**
+     * Whether the user has an action of any type in a date range.
+     */
+    boolean existsByUserIdAndDayBetween(Long userId, LocalDate from, LocalDate to);
+
+    @Modifying
+    @Query("delete from UserActivityDay d where d.userId = :userId")
+    int deleteByUserId(@Param("userId") Long userId);
+}
@@ -0,0 +1,32 @@
+package com.ecotrack.repository;
+
+import com.ecotrack.model.UserActivityState;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository for the per-user activity consumer state.
+ */
+@Repository
+public interface UserActivityStateRepository extends JpaRepository<UserActivityState, Long> {
+
+    /**
+     * Create the user's state row unless it exists, without failing when another instance creates it first.
+     */
+    @Modifying
+    @Query(value = "insert into user_activity_state (user_id) values (:userId)"
+            + " on duplicate key update user_id = user_id", nativeQuery = true)
+    void ensureExists(@Param("userId") Long userId);
+
+    /**
+     * Read the user's state row, holding a write lock on it until the transaction ends.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from UserActivityState s where s.userId = :userId")
+    UserActivityState lock(@Param("userId") Long userId);
+}
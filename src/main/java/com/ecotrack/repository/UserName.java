@@ -0,0 +1,11 @@
+package com.ecotrack.repository;
+
+/**
+ * Projection holding only the id and display name of a user.
+ */
+public interface UserName {
+
+    Long getId();
+
+    String getName();
+}
@@ -0,0 +1,11 @@
+package com.ecotrack.repository;
+
+/**
+ * Projection holding the total points of one user.
+ */
+public interface UserPoints {
+
+    Long getUserId();
+
+    Long getPoints();
+}
@@ -0,0 +1,68 @@
+package com.ecotrack.repository;
+
+import com.ecotrack.model.UserPointsSummary;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+
+/**
+ * Repository for the per-user points totals.
+ */
+@Repository
+public interface UserPointsSummaryRepository extends JpaRepository<UserPointsSummary, Long> {
+
+    /**
+     * Add a delta to a user's running total in place and bump the data version.
+     *
+     * @param userId owner of the summary
+     * @param delta points to add, negative when points are removed
+     * @param now time of the change
+     * @return number of updated rows, zero when the user has no summary yet
+     */
+    @Modifying
+    @Query("update UserPointsSummary s set s.totalPoints = s.totalPoints + :delta,"
+            + " s.dataVersion = s.dataVersion + 1, s.updatedAt = :now where s.userId = :userId")
+    int addPoints(@Param("userId") Long userId, @Param("delta") long delta, @Param("now") Instant now);
+
+    /**
+     * Create an empty summary for a user unless one exists, without failing when a concurrent first write
+     * creates it first (the insert then waits for that write to commit and is ignored).
+     *
+     * @param userId owner of the summary
+     * @param now time of the creation
+     * @return 1 when the summary was created, 0 when it existed
+     */
+    @Modifying
+    @Query(value = "insert ignore into user_points_summary (user_id, total_points, data_version, updated_at)"
+            + " values (:userId, 0, 0, :now)", nativeQuery = true)
+    int createIfMissing(@Param("userId") Long userId, @Param("now") Instant now);
+
+    /**
+     * Read a user's summary, holding a write lock on it until the transaction ends. Every write to the user's
+     * points updates this row first, so holding it keeps them out.
+     *
+     * @param userId owner of the summary
+     * @return the summary, null when the user has none
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from UserPointsSummary s where s.userId = :userId")
+    UserPointsSummary lock(@Param("userId") Long userId);
+
+    /**
+     * Bump a user's data version after a change that leaves the points as they are.
+     *
+     * @param userId owner of the summary
+     * @param now time of the change
+     * @return number of updated rows, zero when the user has no summary yet
+     */
+    @Modifying
+    @Query("update UserPointsSummary s set s.dataVersion = s.dataVersion + 1, s.updatedAt = :now"
+            + " where s.userId = :userId")
+    int touch(@Param("userId") Long userId, @Param("now") Instant now);
+}
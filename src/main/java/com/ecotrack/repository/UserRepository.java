@@ -1,22 +1,85 @@
 package com.ecotrack.repository;
 
 import com.ecotrack.model.User;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 /**
  * Repository for performing CRUD operations on users.
+ * Roles are lazy; finders whose callers build a security principal fetch them in the same query.
  */
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
 
     /**
-     * Find a user by their email address.
+     * Find a user by their email address, with roles, for authentication.
      *
      * @param email unique email address
      * @return optional user
      */
+    @EntityGraph(attributePaths = "roles")
     Optional<User> findByEmail(String email);
+
+    /**
+     * Find a user by id, with roles, for rebuilding the principal after a profile change.
+     *
+     * @param id user id
+     * @return optional user
+     */
+    @EntityGraph(attributePaths = "roles")
+    Optional<User> findWithRolesById(Long id);
+
+    /**
+     * Check whether an email address is registered without loading the user.
+     *
+     * @param email email address
+     * @return true if a user has this email
+     */
+    boolean existsByEmail(String email);
+
+    /**
+     * Registration time of a user without loading the entity.
+     *
+     * @param id user id
+     * @return registration time, empty for a missing user or one registered before it was recorded
+     */
+    @Query("select u.createdAt from User u where u.id = :id")
+    Optional<Instant> findCreatedAtById(@Param("id") Long id);
+
+    /**
+     * Return the ids of all users without loading the entities.
+     *
+     * @return user ids
+     */
+    @Query("select u.id from User u")
+    List<Long> findAllIds();
+
+    /**
+     * Return the display names of the given users without loading the entities or their roles.
+     *
+     * @param ids user ids
+     * @return id and name of each existing user
+     */
+    @Query("select u.id as id, u.name as name from User u where u.id in :ids")
+    List<UserName> findNamesByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Replace the stored password hash of a user.
+     *
+     * @param email the user's email
+     * @param password new encoded password
+     * @return number of updated rows
+     */
+    @Modifying
+    @Query("update User u set u.password = :password where u.email = :email")
+    int updatePassword(@Param("email") String email, @Param("password") String password);
 }
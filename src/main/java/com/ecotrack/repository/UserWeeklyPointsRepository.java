@@ -0,0 +1,64 @@
+package com.ecotrack.repository;
+
+import com.ecotrack.model.UserWeeklyPoints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository for the per-user, per-ISO-week points buckets.
+ */
+@Repository
+public interface UserWeeklyPointsRepository extends JpaRepository<UserWeeklyPoints, Long> {
+
+    /**
+     * Return the non-empty weekly buckets of a user in chronological order.
+     *
+     * @param userId owner of the buckets
+     * @return weekly buckets
+     */
+    @Query("select w from UserWeeklyPoints w where w.userId = :userId and w.points <> 0 "
+            + "order by w.weekYear, w.week")
+    List<UserWeeklyPoints> findNonEmptyByUserId(@Param("userId") Long userId);
+
+    /**
+     * Find a single weekly bucket.
+     *
+     * @param userId owner of the bucket
+     * @param weekYear ISO week-based year
+     * @param week ISO week
+     * @return the bucket, empty if the user has no points in that week
+     */
+    Optional<UserWeeklyPoints> findByUserIdAndWeekYearAndWeek(Long userId, int weekYear, int week);
+
+    /**
+     * Add a delta to a weekly bucket, creating the bucket if it does not exist yet.
+     *
+     * @param userId owner of the bucket
+     * @param weekYear ISO week-based year
+     * @param week ISO week
+     * @param delta points to add, negative when points are removed
+     */
+    @Modifying
+    @Query(value = "insert into user_weekly_points (user_id, week_year, week, points) "
+            + "values (:userId, :weekYear, :week, :delta) "
+            + "on duplicate key update points = points + :delta", nativeQuery = true)
+    void addPoints(@Param("userId") Long userId,
+                   @Param("weekYear") int weekYear,
+                   @Param("week") int week,
+                   @Param("delta") long delta);
+
+    /**
+     * Remove every weekly bucket of a user, used before rebuilding them from the raw actions.
+     *
+     * @param userId owner of the buckets
+     */
+    @Modifying
+    @Query("delete from UserWeeklyPoints w where w.userId = :userId")
+    void deleteByUserId(@Param("userId") Long userId);
+}
@@ -0,0 +1,13 @@
+package com.ecotrack.repository;
+
+/**
+ * Projection holding the points of a user within one ISO week.
+ */
+public interface WeeklyPoints {
+
+    Integer getWeekYear();
+
+    Integer getWeek();
+
+    Long getPoints();
+}
@@ -0,0 +1,17 @@
+package com.ecotrack.security;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a controller method parameter of type {@link UserPrincipal} to be filled with the signed-in user.
+ * Resolved from the security context by {@link CurrentUserArgumentResolver}, without a database query.
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface CurrentUser {
+}
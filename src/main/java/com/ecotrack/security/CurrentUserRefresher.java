@@ -0,0 +1,47 @@
+package com.ecotrack.security;
+
+import com.ecotrack.model.User;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.context.SecurityContextRepository;
+import org.springframework.stereotype.Component;
+
+/**
+ * Replaces the principal held in the session after the signed-in user's profile changed, so that the
+ * cached profile fields never go stale.
+ */
+@Component
+public class CurrentUserRefresher {
+
+    private final SecurityContextRepository securityContextRepository;
+
+    @Autowired
+    public CurrentUserRefresher(SecurityContextRepository securityContextRepository) {
+        this.securityContextRepository = securityContextRepository;
+    }
+
+    /**
+     * Swap the current principal for one built from the updated user and persist the new context.
+     *
+     * @param user the updated user, with roles loaded
+     * @param request current request
+     * @param response current response
+     */
+    public void refresh(User user, HttpServletRequest request, HttpServletResponse response) {
+        Authentication current = SecurityContextHolder.getContext().getAuthentication();
+        UserPrincipal principal = UserPrincipal.from(user).withoutPassword();
+        UsernamePasswordAuthenticationToken authentication = UsernamePasswordAuthenticationToken.authenticated(
+                principal, current != null ? current.getCredentials() : null, principal.getAuthorities());
+        authentication.setDetails(current != null ? current.getDetails() : null);
+
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(authentication);
+        SecurityContextHolder.setContext(context);
+        securityContextRepository.saveContext(context, request, response);
+    }
+}
@@ -0,0 +1,20 @@
+package com.ecotrack.security;
+
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
+
+/**
+ * Thrown when the password hashing executor is saturated and a hash cannot be computed in time.
+ * Translated to 503 Service Unavailable with a Retry-After header. Extends
+ * {@link InternalAuthenticationServiceException} so that authentication stops instead of being retried
+ * by the next provider.
+ */
+public class HashingCapacityExceededException extends InternalAuthenticationServiceException {
+
+    public HashingCapacityExceededException(String message) {
+        super(message);
+    }
+
+    public HashingCapacityExceededException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -1,15 +1,31 @@
 package com.ecotrack.security;
 
 import com.ecotrack.service.UserService;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.web.AuthenticationEntryPoint;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.AuthenticationFailureHandler;
+import org.springframework.security.web.authentication.SimpleUrlAuthenticationFailureHandler;
+import org.springframework.security.web.authentication.www.BasicAuthenticationEntryPoint;
+import org.springframework.security.web.context.DelegatingSecurityContextRepository;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+import org.springframework.security.web.context.RequestAttributeSecurityContextRepository;
+import org.springframework.security.web.context.SecurityContextRepository;
+
+import java.time.Duration;
 
 /**
  * Configure Spring Security for the EcoTrack application.
@@ -20,46 +36,141 @@ import org.springframework.security.web.SecurityFilterChain;
 public class SecurityConfig {
 
     /**
-     * Password encoder bean using BCrypt algorithm.
+     * Password encoder bean using BCrypt with a configurable work factor. Hashing runs on a dedicated
+     * executor sized to the CPU cores with a bounded queue; when it is saturated requests get a 503.
      *
      * @return PasswordEncoder
      */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public BoundedPasswordEncoder passwordEncoder(
+            @Value("${ecotrack.security.bcrypt-strength:10}") int strength,
+            @Value("${ecotrack.security.hashing.threads:0}") int threads,
+            @Value("${ecotrack.security.hashing.queue-capacity:100}") int queueCapacity,
+            @Value("${ecotrack.security.hashing.timeout:5s}") Duration timeout) {
+        int hashingThreads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(strength), hashingThreads, queueCapacity, timeout);
     }
 
     /**
-     * Authentication provider referencing our custom UserService.
+     * Authentication provider referencing our custom UserService. Hashes stored with a lower work factor
+     * than configured are transparently re-hashed on the next successful login. The authentication carries
+     * a copy of the principal without the hash, leaving the cached user details intact when its credentials
+     * are erased.
      */
     @Bean
     public DaoAuthenticationProvider authenticationProvider(UserService userService,
                                                             PasswordEncoder passwordEncoder) {
-        DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
+        DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider() {
+            @Override
+            protected Authentication createSuccessAuthentication(Object principal, Authentication authentication,
+                                                                 UserDetails user) {
+                Object sessionPrincipal = principal instanceof UserPrincipal userPrincipal
+                        ? userPrincipal.withoutPassword()
+                        : principal;
+                return super.createSuccessAuthentication(sessionPrincipal, authentication, user);
+            }
+        };
         authProvider.setUserDetailsService(userService);
+        authProvider.setUserDetailsPasswordService(userService);
         authProvider.setPasswordEncoder(passwordEncoder);
         return authProvider;
     }
 
+    /**
+     * Login failure handling: a saturated hashing executor answers 503 with Retry-After instead of
+     * reporting wrong credentials.
+     */
+    @Bean
+    public AuthenticationFailureHandler authenticationFailureHandler(
+            @Value("${ecotrack.security.hashing.retry-after-seconds:5}") int retryAfterSeconds) {
+        AuthenticationFailureHandler credentialsFailure = new SimpleUrlAuthenticationFailureHandler("/login?error");
+        return (request, response, exception) -> {
+            if (exception instanceof HashingCapacityExceededException) {
+                response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+                response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Too many sign-ins, retry shortly");
+            } else {
+                credentialsFailure.onAuthenticationFailure(request, response, exception);
+            }
+        };
+    }
+
+    /**
+     * Repository holding the security context between requests. Exposed as a bean so the principal can be
+     * refreshed after a profile update.
+     */
+    @Bean
+    public SecurityContextRepository securityContextRepository() {
+        return new DelegatingSecurityContextRepository(
+                new RequestAttributeSecurityContextRepository(),
+                new HttpSessionSecurityContextRepository());
+    }
+
+    /**
+     * Security for the JSON API under {@code /api/**} and the actuator endpoints (Prometheus scrapes, admins
+     * only apart from the health check): HTTP Basic or the browser session, answering 401 instead of
+     * redirecting to the login page. A Basic sign-in is kept in the session like a form login, so clients that
+     * keep the session cookie pay for password hashing once rather than on every request.
+     */
+    @Bean
+    @Order(1)
+    public SecurityFilterChain apiFilterChain(HttpSecurity http,
+                                              DaoAuthenticationProvider authenticationProvider,
+                                              SecurityContextRepository securityContextRepository,
+                                              @Value("${ecotrack.security.hashing.retry-after-seconds:5}")
+                                              int retryAfterSeconds) throws Exception {
+        BasicAuthenticationEntryPoint basicEntryPoint = new BasicAuthenticationEntryPoint();
+        basicEntryPoint.setRealmName("EcoTrack");
+        AuthenticationEntryPoint entryPoint = (request, response, exception) -> {
+            if (exception instanceof HashingCapacityExceededException) {
+                response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+                response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Too many sign-ins, retry shortly");
+            } else {
+                basicEntryPoint.commence(request, response, exception);
+            }
+        };
+        http
+                .securityMatcher("/api/**", "/actuator/**")
+                .securityContext(context -> context.securityContextRepository(securityContextRepository))
+                .csrf(csrf -> csrf.disable())
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.IF_REQUIRED))
+                .authenticationProvider(authenticationProvider)
+                .authorizeHttpRequests(auth -> auth
+                        .requestMatchers("/actuator/health", "/actuator/health/**").permitAll()
+                        .requestMatchers("/api/v1/export/all", "/actuator/**").hasRole("ADMIN")
+                        .anyRequest().authenticated()
+                )
+                .httpBasic(basic -> basic
+                        .securityContextRepository(securityContextRepository)
+                        .authenticationEntryPoint(entryPoint)
+                )
+                .exceptionHandling(exceptions -> exceptions.authenticationEntryPoint(entryPoint));
+        return http.build();
+    }
+
     /**
      * Define security filter chain using the component-based API available in Spring Boot 3.
      */
     @Bean
+    @Order(2)
     public SecurityFilterChain filterChain(HttpSecurity http,
-                                           DaoAuthenticationProvider authenticationProvider) throws Exception {
+                                           DaoAuthenticationProvider authenticationProvider,
+                                           SecurityContextRepository securityContextRepository,
+                                           AuthenticationFailureHandler authenticationFailureHandler) throws Exception {
         http
+                .securityContext(context -> context.securityContextRepository(securityContextRepository))
                 // Disable CSRF for simplicity; enable if using forms on different domains
                 .csrf(csrf -> csrf.disable())
                 // Use stateful sessions when required for form login flows
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.IF_REQUIRED))
                 .authenticationProvider(authenticationProvider)
                 .authorizeHttpRequests(auth -> auth
-                        .requestMatchers("/", "/register", "/login", "/css/**", "/images/**", "/js/**").permitAll()
+                        .requestMatchers("/", "/register", "/login", "/error", "/css/**", "/images/**", "/js/**").permitAll()
                         .anyRequest().authenticated()
                 )
                 .formLogin(form -> form
                         .loginPage("/login")
                         .defaultSuccessUrl("/dashboard", true)
+                        .failureHandler(authenticationFailureHandler)
                         .permitAll()
                 )
                 .logout(logout -> logout
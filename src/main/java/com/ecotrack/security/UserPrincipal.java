@@ -0,0 +1,128 @@
+package com.ecotrack.security;
+
+import com.ecotrack.model.User;
+import org.springframework.security.core.CredentialsContainer;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.io.Serial;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Authenticated principal stored in the security context. Besides the credentials it carries the user id
+ * and the profile fields shown on every page, so controllers don't need to reload the user per request.
+ * The principal kept in a session is a copy without the password hash (see {@link #withoutPassword()}), since
+ * sessions may be serialized into the database.
+ */
+public class UserPrincipal implements UserDetails, CredentialsContainer {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final Long id;
+    private final String email;
+    private String password;
+    private final String name;
+    private final String avatar;
+    private final List<GrantedAuthority> authorities;
+
+    public UserPrincipal(Long id, String email, String password, String name, String avatar,
+                         Collection<? extends GrantedAuthority> authorities) {
+        this.id = id;
+        this.email = email;
+        this.password = password;
+        this.name = name;
+        this.avatar = avatar;
+        this.authorities = List.copyOf(authorities);
+    }
+
+    /**
+     * Build a principal from a persisted user.
+     *
+     * @param user the user, with roles loaded
+     * @return principal
+     */
+    public static UserPrincipal from(User user) {
+        return new UserPrincipal(
+                user.getId(),
+                user.getEmail(),
+                user.getPassword(),
+                user.getName(),
+                user.getAvatar(),
+                user.getRoles().stream().map(SimpleGrantedAuthority::new).toList());
+    }
+
+    /**
+     * Copy of this principal without the password hash, to be stored in the security context. The original
+     * is left untouched, so a cached instance can still check the next sign-in.
+     *
+     * @return principal without password
+     */
+    public UserPrincipal withoutPassword() {
+        return new UserPrincipal(id, email, null, name, avatar, authorities);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    /**
+     * Display name of the user.
+     */
+    public String getName() {
+        return name;
+    }
+
+    public String getAvatar() {
+        return avatar;
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    @Override
+    public String getPassword() {
+        return password;
+    }
+
+    /**
+     * We use the email as username.
+     */
+    @Override
+    public String getUsername() {
+        return email;
+    }
+
+    @Override
+    public void eraseCredentials() {
+        password = null;
+    }
+
+    @Override
+    public boolean isAccountNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isAccountNonLocked() {
+        return true;
+    }
+
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+}
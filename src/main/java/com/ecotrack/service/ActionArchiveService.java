@@ -0,0 +1,132 @@
+package com.ecotrack.service;
+
+import com.ecotrack.enums.ActionType;
+import com.ecotrack.repository.DailyTypePoints;
+import com.ecotrack.repository.EcoActionArchiveRepository;
+import com.ecotrack.repository.EcoActionRepository;
+import com.ecotrack.repository.UserPointsSummaryRepository;
+import com.ecotrack.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps {@code eco_actions} bounded to the retention period. A nightly job rolls every action older than
+ * {@code ecotrack.archive.retention-months} whole months into per-user, per-week, per-type
+ * {@link com.ecotrack.model.EcoActionArchive} rows and deletes it, one transaction per user. Totals and weekly
+ * points are unchanged: the summaries already hold them and rebuilding them adds the archive back in.
+ * Archived actions no longer appear in the action list and cannot be edited.
+ * <p>
+ * The retention is never shorter than the monthly dashboard series, which is read from the raw actions.
+ */
+@Service
+public class ActionArchiveService {
+
+    private static final Logger log = LoggerFactory.getLogger(ActionArchiveService.class);
+
+    private final EcoActionRepository ecoActionRepository;
+    private final EcoActionArchiveRepository archiveRepository;
+    private final UserRepository userRepository;
+    private final UserPointsSummaryRepository summaryRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final JobLockService jobLockService;
+    private final boolean enabled;
+    private final int retentionMonths;
+
+    @Autowired
+    public ActionArchiveService(EcoActionRepository ecoActionRepository,
+                                EcoActionArchiveRepository archiveRepository,
+                                UserRepository userRepository,
+                                UserPointsSummaryRepository summaryRepository,
+                                PlatformTransactionManager transactionManager,
+                                JobLockService jobLockService,
+                                @Value("${ecotrack.archive.enabled:false}") boolean enabled,
+                                @Value("${ecotrack.archive.retention-months:24}") int retentionMonths) {
+        this.ecoActionRepository = ecoActionRepository;
+        this.archiveRepository = archiveRepository;
+        this.userRepository = userRepository;
+        this.summaryRepository = summaryRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jobLockService = jobLockService;
+        this.enabled = enabled;
+        if (retentionMonths < EcoActionService.MONTH_SERIES_MONTHS) {
+            log.warn("ecotrack.archive.retention-months={} is shorter than the monthly series, using {}",
+                    retentionMonths, EcoActionService.MONTH_SERIES_MONTHS);
+        }
+        this.retentionMonths = Math.max(retentionMonths, EcoActionService.MONTH_SERIES_MONTHS);
+    }
+
+    /**
+     * First date kept in {@code eco_actions}: the first day of the month {@code retentionMonths} months ago.
+     */
+    public LocalDate cutoff() {
+        return LocalDate.now().withDayOfMonth(1).minusMonths(retentionMonths);
+    }
+
+    /**
+     * Archive job: archive every user's actions before the cutoff, one transaction per user. Runs on one node of
+     * a cluster at a time.
+     */
+    @Scheduled(cron = "${ecotrack.archive.cron:0 0 4 * * *}")
+    public void archiveAll() {
+        if (!enabled) {
+            return;
+        }
+        jobLockService.runExclusively("archive", JobLockService.NIGHTLY_AT_MOST, JobLockService.NIGHTLY_AT_LEAST,
+                () -> {
+                    LocalDate before = cutoff();
+                    List<Long> userIds = userRepository.findAllIds();
+                    long archived = 0;
+                    for (Long userId : userIds) {
+                        Integer count = transactionTemplate.execute(status -> archive(userId, before));
+                        archived += count == null ? 0 : count;
+                    }
+                    log.info("Archived {} actions dated before {} for {} users", archived, before, userIds.size());
+                });
+    }
+
+    /**
+     * Roll a user's actions before a date into the archive and delete them. Must run in a transaction of its own,
+     * as its first statement locks the actions: the aggregate then reads the same rows the delete removes, and
+     * an action back-dated into the range meanwhile waits for the commit instead of being deleted unarchived.
+     *
+     * @param userId the owner
+     * @param before first date kept
+     * @return number of archived actions
+     */
+    int archive(Long userId, LocalDate before) {
+        if (ecoActionRepository.lockIdsByUserIdBefore(userId, before).isEmpty()) {
+            return 0;
+        }
+        List<DailyTypePoints> days = ecoActionRepository.sumByUserIdGroupByDateAndTypeBefore(userId, before);
+        if (days.isEmpty()) {
+            return 0;
+        }
+        // week key as in PointsSummaryService: weekYear * 100 + week; per type {actions, points}
+        Map<Integer, Map<ActionType, long[]>> byWeek = new HashMap<>();
+        for (DailyTypePoints day : days) {
+            int key = PointsSummaryService.weekYear(day.getDate()) * 100 + PointsSummaryService.week(day.getDate());
+            long[] totals = byWeek.computeIfAbsent(key, k -> new EnumMap<>(ActionType.class))
+                    .computeIfAbsent(day.getActionType(), t -> new long[2]);
+            totals[0] += day.getActions();
+            totals[1] += day.getPoints();
+        }
+        byWeek.forEach((key, byType) -> byType.forEach((type, totals) -> archiveRepository.addActions(
+                userId, key / 100, key % 100, type.name(), Math.toIntExact(totals[0]), totals[1])));
+        // the action list changed even though the points did not
+        summaryRepository.touch(userId, Instant.now());
+        return ecoActionRepository.deleteByUserIdBefore(userId, before);
+    }
+}
@@ -0,0 +1,82 @@
+package com.ecotrack.service;
+
+import com.ecotrack.model.ActionEvent;
+import com.ecotrack.repository.ActionEventBatchRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records every {@link EcoActionEvent} in the {@code action_events} outbox within the transaction publishing
+ * it, so an event exists if and only if its change committed. Events of one transaction are buffered and
+ * inserted as one JDBC batch just before commit; an import batch costs one extra statement, not one per row.
+ */
+@Component
+public class ActionEventOutbox {
+
+    private final ActionEventBatchRepository actionEventBatchRepository;
+
+    @Autowired
+    public ActionEventOutbox(ActionEventBatchRepository actionEventBatchRepository) {
+        this.actionEventBatchRepository = actionEventBatchRepository;
+    }
+
+    @EventListener
+    public void record(EcoActionEvent event) {
+        ActionEvent row = toRow(event);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            actionEventBatchRepository.insertAll(List.of(row));
+            return;
+        }
+        // the buffer is bound to the transaction, so a suspended transaction keeps its own
+        Flush flush = (Flush) TransactionSynchronizationManager.getResource(this);
+        if (flush == null) {
+            flush = new Flush();
+            TransactionSynchronizationManager.bindResource(this, flush);
+            TransactionSynchronizationManager.registerSynchronization(flush);
+        }
+        flush.events.add(row);
+    }
+
+    private static ActionEvent toRow(EcoActionEvent event) {
+        return ActionEvent.builder()
+                .userId(event.getUserId())
+                .change(event.getChange())
+                .actionId(event.getActionId())
+                .actionType(event.getActionType())
+                .date(event.getDate())
+                .previousActionType(event.getPreviousActionType())
+                .previousDate(event.getPreviousDate())
+                .build();
+    }
+
+    private final class Flush implements TransactionSynchronization {
+
+        private final List<ActionEvent> events = new ArrayList<>();
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(ActionEventOutbox.this);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(ActionEventOutbox.this, this);
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            actionEventBatchRepository.insertAll(events);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(ActionEventOutbox.this);
+        }
+    }
+}
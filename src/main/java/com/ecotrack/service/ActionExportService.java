@@ -0,0 +1,239 @@
+package com.ecotrack.service;
+
+import com.ecotrack.enums.ExportFormat;
+import com.ecotrack.model.EcoAction;
+import com.ecotrack.repository.EcoActionArchiveRepository;
+import com.ecotrack.repository.EcoActionRepository;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams action history to an output stream as CSV or NDJSON in constant memory. Rows are read from a
+ * database cursor in a read-only transaction, {@link EcoActionRepository#EXPORT_FETCH_SIZE} at a time; each
+ * action is detached once written and the persistence context is cleared every fetch, so neither the
+ * persistence context nor the output buffers grow with the export.
+ * <p>
+ * Only actions still in {@code eco_actions} are exported. Archived actions (see {@link ActionArchiveService})
+ * survive as weekly totals only and cannot be exported as actions; {@link #countArchivedActions(Long)} tells how
+ * many an export leaves out.
+ */
+@Service
+public class ActionExportService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final EcoActionRepository ecoActionRepository;
+    private final EcoActionArchiveRepository archiveRepository;
+    private final TransactionTemplate readOnlyTransaction;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    public ActionExportService(EcoActionRepository ecoActionRepository,
+                               EcoActionArchiveRepository archiveRepository,
+                               PlatformTransactionManager transactionManager) {
+        this.ecoActionRepository = ecoActionRepository;
+        this.archiveRepository = archiveRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Export a user's actions oldest first. The CSV form is the import format, but importing it scores the
+     * actions again (see {@link EcoActionService#importActions}) rather than keeping the exported points.
+     *
+     * @param userId the owner
+     * @param format output format
+     * @param gzip compress the output
+     * @param out destination, left open
+     * @return number of exported actions
+     * @throws IOException if writing fails, for example because the client went away
+     */
+    public long exportUser(Long userId, ExportFormat format, boolean gzip, OutputStream out) throws IOException {
+        return export(() -> ecoActionRepository.streamByUserId(userId), false, format, gzip, out);
+    }
+
+    /**
+     * Export every user's actions, by user and date, with the owner's id on every row.
+     *
+     * @param format output format
+     * @param gzip compress the output
+     * @param out destination, left open
+     * @return number of exported actions
+     * @throws IOException if writing fails, for example because the client went away
+     */
+    public long exportAll(ExportFormat format, boolean gzip, OutputStream out) throws IOException {
+        return export(ecoActionRepository::streamAll, true, format, gzip, out);
+    }
+
+    /**
+     * Number of a user's archived actions, which {@link #exportUser} leaves out.
+     *
+     * @param userId the owner
+     * @return archived actions
+     */
+    public long countArchivedActions(Long userId) {
+        Long count = readOnlyTransaction.execute(status -> archiveRepository.countActionsByUserId(userId));
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Number of every user's archived actions, which {@link #exportAll} leaves out.
+     *
+     * @return archived actions
+     */
+    public long countArchivedActions() {
+        Long count = readOnlyTransaction.execute(status -> archiveRepository.countActions());
+        return count == null ? 0 : count;
+    }
+
+    private long export(Supplier<Stream<EcoAction>> query, boolean withUser, ExportFormat format, boolean gzip,
+                        OutputStream out) throws IOException {
+        GZIPOutputStream compressed = gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : null;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(gzip ? compressed : out, StandardCharsets.UTF_8),
+                BUFFER_SIZE);
+        RowWriter rows = format == ExportFormat.CSV ? new CsvRowWriter(writer, withUser) : new NdjsonRowWriter(writer);
+        Long count;
+        try {
+            count = readOnlyTransaction.execute(status -> {
+                long written = 0;
+                try (Stream<EcoAction> actions = query.get()) {
+                    rows.header();
+                    for (EcoAction action : (Iterable<EcoAction>) actions::iterator) {
+                        rows.write(action);
+                        entityManager.detach(action);
+                        if (++written % EcoActionRepository.EXPORT_FETCH_SIZE == 0) {
+                            // also drops the owners' uninitialized proxies, which detaching an action keeps
+                            entityManager.clear();
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return written;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        rows.finish();
+        if (compressed != null) {
+            compressed.finish();
+        }
+        return count == null ? 0 : count;
+    }
+
+    private interface RowWriter {
+
+        void header() throws IOException;
+
+        void write(EcoAction action) throws IOException;
+
+        void finish() throws IOException;
+    }
+
+    private static final class CsvRowWriter implements RowWriter {
+
+        private final Writer writer;
+        private final boolean withUser;
+
+        private CsvRowWriter(Writer writer, boolean withUser) {
+            this.writer = writer;
+            this.withUser = withUser;
+        }
+
+        @Override
+        public void header() throws IOException {
+            writer.write(withUser ? "userId,actionType,date,points,description\n" : "actionType,date,points,description\n");
+        }
+
+        @Override
+        public void write(EcoAction action) throws IOException {
+            if (withUser) {
+                writer.write(String.valueOf(action.getUser().getId()));
+                writer.write(',');
+            }
+            writer.write(action.getActionType().name());
+            writer.write(',');
+            writer.write(action.getDate().toString());
+            writer.write(',');
+            writer.write(Integer.toString(action.getPoints()));
+            writer.write(',');
+            writer.write(quote(action.getDescription()));
+            writer.write('\n');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            writer.flush();
+        }
+
+        private static String quote(String value) {
+            if (value == null) {
+                return "";
+            }
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+                    && value.indexOf('\r') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+    }
+
+    private static final class NdjsonRowWriter implements RowWriter {
+
+        private static final JsonFactory JSON = new JsonFactory();
+
+        private final Writer writer;
+        private JsonGenerator generator;
+
+        private NdjsonRowWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void header() throws IOException {
+            generator = JSON.createGenerator(writer);
+            generator.setRootValueSeparator(null);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        }
+
+        @Override
+        public void write(EcoAction action) throws IOException {
+            generator.writeStartObject();
+            generator.writeNumberField("id", action.getId());
+            generator.writeNumberField("userId", action.getUser().getId());
+            generator.writeStringField("actionType", action.getActionType().name());
+            generator.writeStringField("date", action.getDate().toString());
+            generator.writeNumberField("points", action.getPoints());
+            generator.writeStringField("description", action.getDescription());
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            if (generator != null) {
+                generator.flush();
+            }
+            writer.flush();
+        }
+    }
+}
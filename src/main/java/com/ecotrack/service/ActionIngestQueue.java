@@ -0,0 +1,357 @@
+package com.ecotrack.service;
+
+import com.ecotrack.model.EcoAction;
+import com.ecotrack.repository.EcoActionBatchRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Optional write-behind path for newly logged actions ({@code ecotrack.ingest.write-behind.enabled}).
+ * Accepted actions are acknowledged at once and written by a single background thread, which coalesces
+ * everything accepted within {@code ecotrack.ingest.flush-interval} (up to {@code ecotrack.ingest.batch-size}
+ * actions) into one transaction of JDBC batch inserts and per-week summary deltas.
+ * <p>
+ * With {@code ecotrack.ingest.journal-dir} set, every action is appended to an {@link ActionJournal} before it
+ * is acknowledged and replayed on the next start if it was not written. Without it, accepted actions that
+ * are not yet written are lost if the process dies.
+ * <p>
+ * Actions not yet written are visible to their owner through {@link #pending(Long)}; on a cluster that holds
+ * only for requests served by the same instance.
+ */
+@Service
+public class ActionIngestQueue implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ActionIngestQueue.class);
+
+    private static final String JOURNAL_FILE = "actions.journal";
+    private static final long JOURNAL_COMPACT_BYTES = 4L * 1024 * 1024;
+    private static final Duration MAX_RETRY_DELAY = Duration.ofSeconds(30);
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(30);
+    /**
+     * Longest a request waits for the journal (behind other appends or a compaction) before writing its action
+     * itself.
+     */
+    private static final Duration OFFER_LOCK_TIMEOUT = Duration.ofMillis(100);
+
+    private final EcoActionBatchRepository ecoActionBatchRepository;
+    private final PointsSummaryService pointsSummaryService;
+    private final ActionRollupService actionRollupService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int capacity;
+    private final int batchSize;
+    private final Duration flushInterval;
+    private final ActionJournal journal;
+
+    // guards the journal and sequence numbers; held across file writes, so waiters are bounded
+    private final ReentrantLock lock = new ReentrantLock();
+    private final BlockingQueue<PendingAction> queue = new LinkedBlockingQueue<>();
+    private final Map<Long, Queue<PendingAction>> pendingByUser = new ConcurrentHashMap<>();
+    // guarded by lock
+    private long lastSeq;
+    private volatile boolean running;
+    private Thread writer;
+
+    @Autowired
+    public ActionIngestQueue(EcoActionBatchRepository ecoActionBatchRepository,
+                             PointsSummaryService pointsSummaryService,
+                             ActionRollupService actionRollupService,
+                             ApplicationEventPublisher eventPublisher,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${ecotrack.ingest.write-behind.enabled:false}") boolean enabled,
+                             @Value("${ecotrack.ingest.queue-capacity:10000}") int capacity,
+                             @Value("${ecotrack.ingest.batch-size:500}") int batchSize,
+                             @Value("${ecotrack.ingest.flush-interval:200ms}") Duration flushInterval,
+                             @Value("${ecotrack.ingest.journal-dir:}") String journalDir,
+                             @Value("${ecotrack.ingest.journal-sync:false}") boolean journalSync) {
+        this.ecoActionBatchRepository = ecoActionBatchRepository;
+        this.pointsSummaryService = pointsSummaryService;
+        this.actionRollupService = actionRollupService;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.journal = enabled && !journalDir.isBlank()
+                ? openJournal(Path.of(journalDir, JOURNAL_FILE), journalSync)
+                : null;
+    }
+
+    /**
+     * Start the background writer once the application is up.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        log.info("Starting write-behind action ingestion ({} actions pending)", queue.size());
+        running = true;
+        writer = new Thread(this::runWriter, "action-ingest-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Accept an action for asynchronous writing.
+     *
+     * @param userId owner of the action
+     * @param action the action; its user field is ignored
+     * @return false if write-behind is disabled, not started, full or its journal is busy; the caller must then
+     *         write the action itself
+     */
+    public boolean offer(Long userId, EcoAction action) {
+        if (!running) {
+            return false;
+        }
+        try {
+            if (!lock.tryLock(OFFER_LOCK_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+                return false;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        try {
+            if (queue.size() >= capacity) {
+                return false;
+            }
+            PendingAction pending = new PendingAction(lastSeq + 1, userId, action);
+            if (journal != null) {
+                try {
+                    journal.append(pending);
+                } catch (IOException e) {
+                    log.warn("Could not journal action, writing it synchronously", e);
+                    return false;
+                }
+            }
+            lastSeq++;
+            // register before queueing so that the writer cannot complete it first
+            track(pending);
+            queue.add(pending);
+        } finally {
+            lock.unlock();
+        }
+        return true;
+    }
+
+    /**
+     * Actions of a user accepted but not yet written, oldest first.
+     *
+     * @param userId the owner
+     * @return snapshot of the pending actions, without ids
+     */
+    public List<EcoAction> pending(Long userId) {
+        Queue<PendingAction> userPending = pendingByUser.get(userId);
+        if (userPending == null) {
+            return List.of();
+        }
+        return userPending.stream().map(PendingAction::getAction).toList();
+    }
+
+    /**
+     * Number of actions accepted but not yet written.
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Stop accepting actions and write what is queued. Anything still unwritten after the shutdown timeout
+     * stays in the journal.
+     */
+    @Override
+    public void destroy() throws Exception {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        writer.join(SHUTDOWN_TIMEOUT.toMillis());
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    private ActionJournal openJournal(Path file, boolean sync) {
+        try {
+            ActionJournal opened = new ActionJournal(file, sync);
+            List<PendingAction> replayed = opened.replay();
+            for (PendingAction pending : replayed) {
+                track(pending);
+                queue.add(pending);
+                lastSeq = Math.max(lastSeq, pending.getSeq());
+            }
+            opened.rewrite(replayed);
+            if (!replayed.isEmpty()) {
+                log.info("Replayed {} unwritten actions from {}", replayed.size(), file);
+            }
+            return opened;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open action journal " + file, e);
+        }
+    }
+
+    private void track(PendingAction pending) {
+        pendingByUser.compute(pending.getUserId(), (id, userPending) -> {
+            Queue<PendingAction> tracked = userPending == null ? new ConcurrentLinkedQueue<>() : userPending;
+            tracked.add(pending);
+            return tracked;
+        });
+    }
+
+    private void runWriter() {
+        List<PendingAction> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                if (collect(batch)) {
+                    write(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Write-behind writer failed", e);
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Wait for the first action, then keep collecting until the batch is full or the flush interval since the
+     * first action has passed.
+     */
+    private boolean collect(List<PendingAction> batch) throws InterruptedException {
+        PendingAction first = queue.poll(flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return false;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + flushInterval.toNanos();
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                break;
+            }
+            PendingAction next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+        return true;
+    }
+
+    /**
+     * Write a batch in one transaction, retrying with backoff while the database is unavailable. If the batch
+     * violates a constraint (for example its user was deleted meanwhile) it is written user by user instead:
+     * the failing users' actions are dropped, and any other failure is retried from the first unwritten user.
+     * Either way the whole batch is resolved before the next one, as the journal requires.
+     */
+    private void write(List<PendingAction> batch) throws InterruptedException {
+        Map<Long, List<EcoAction>> byUser = new LinkedHashMap<>();
+        for (PendingAction pending : batch) {
+            byUser.computeIfAbsent(pending.getUserId(), id -> new ArrayList<>()).add(pending.getAction());
+        }
+        long delay = flushInterval.toMillis();
+        boolean userByUser = false;
+        while (true) {
+            try {
+                if (userByUser) {
+                    insertEach(byUser);
+                } else {
+                    transactionTemplate.executeWithoutResult(status -> byUser.forEach(this::insert));
+                }
+                break;
+            } catch (DataIntegrityViolationException e) {
+                userByUser = true;
+            } catch (RuntimeException e) {
+                if (!running) {
+                    log.warn("Leaving {} unwritten actions for the next start: {}", batch.size(), e.getMessage());
+                    return;
+                }
+                log.warn("Write-behind flush of {} actions failed, retrying in {} ms", batch.size(), delay, e);
+                Thread.sleep(delay);
+                delay = Math.min(delay * 2, MAX_RETRY_DELAY.toMillis());
+            }
+        }
+        completed(batch);
+    }
+
+    private void insert(Long userId, List<EcoAction> actions) {
+        ecoActionBatchRepository.insertAll(userId, actions);
+        pointsSummaryService.applyBatch(userId, actions);
+        actionRollupService.addActions(userId, actions);
+        actions.forEach(action -> eventPublisher.publishEvent(EcoActionEvent.created(userId, action)));
+    }
+
+    /**
+     * Write every user's actions in a transaction of its own, removing each user once written or dropped.
+     * Failures other than constraint violations are thrown, leaving the remaining users for the retry.
+     */
+    private void insertEach(Map<Long, List<EcoAction>> byUser) {
+        Iterator<Map.Entry<Long, List<EcoAction>>> users = byUser.entrySet().iterator();
+        while (users.hasNext()) {
+            Map.Entry<Long, List<EcoAction>> user = users.next();
+            try {
+                transactionTemplate.executeWithoutResult(status -> insert(user.getKey(), user.getValue()));
+            } catch (DataIntegrityViolationException e) {
+                log.error("Dropping {} write-behind actions of user {}: {}", user.getValue().size(), user.getKey(),
+                        e.getMessage());
+            }
+            users.remove();
+        }
+    }
+
+    private void completed(List<PendingAction> batch) {
+        for (PendingAction pending : batch) {
+            pendingByUser.computeIfPresent(pending.getUserId(), (id, userPending) -> {
+                userPending.remove(pending);
+                return userPending.isEmpty() ? null : userPending;
+            });
+        }
+        if (journal == null) {
+            return;
+        }
+        lock.lock();
+        try {
+            journal.commit(batch.get(batch.size() - 1).getSeq());
+            if (queue.isEmpty() || journal.size() > JOURNAL_COMPACT_BYTES) {
+                journal.rewrite(new ArrayList<>(queue));
+            }
+        } catch (IOException e) {
+            log.warn("Could not update action journal; written actions may be replayed on restart", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
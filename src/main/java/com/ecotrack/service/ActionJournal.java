@@ -0,0 +1,196 @@
+package com.ecotrack.service;
+
+import com.ecotrack.enums.ActionType;
+import com.ecotrack.model.EcoAction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Append-only file journal of the actions held by {@link ActionIngestQueue}.
+ * Every accepted action is appended as an {@code A} line before it is acknowledged, and every written batch
+ * as a {@code C} line carrying the highest sequence number it covers. Batches are written in acceptance
+ * order, so on replay every action after the last commit marker is still pending. A crash between a
+ * database commit and its marker replays that one batch again.
+ */
+final class ActionJournal implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(ActionJournal.class);
+
+    private final Path file;
+    private final boolean sync;
+    private FileChannel channel;
+    private Writer writer;
+
+    /**
+     * Open (or create) the journal.
+     *
+     * @param file journal file
+     * @param sync force every append to the storage device rather than only to the operating system
+     */
+    ActionJournal(Path file, boolean sync) throws IOException {
+        this.file = file;
+        this.sync = sync;
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        open();
+    }
+
+    /**
+     * Read the actions accepted but not committed before the last shutdown or crash. A torn last line is
+     * skipped.
+     *
+     * @return pending actions in acceptance order
+     */
+    List<PendingAction> replay() throws IOException {
+        List<PendingAction> accepted = new ArrayList<>();
+        long committed = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                try {
+                    if (line.startsWith("C\t")) {
+                        committed = Math.max(committed, Long.parseLong(line.substring(2)));
+                    } else if (line.startsWith("A\t")) {
+                        accepted.add(parse(line));
+                    } else if (!line.isEmpty()) {
+                        throw new IllegalArgumentException("unknown record type");
+                    }
+                } catch (RuntimeException e) {
+                    log.warn("Skipping unreadable journal line in {}: {}", file, e.getMessage());
+                }
+            }
+        }
+        long lastCommitted = committed;
+        accepted.removeIf(pending -> pending.getSeq() <= lastCommitted);
+        return accepted;
+    }
+
+    /**
+     * Append an accepted action. Returns once the line is handed to the operating system
+     * (and to the device when syncing).
+     */
+    void append(PendingAction pending) throws IOException {
+        writer.write(record(pending));
+        flush();
+    }
+
+    /**
+     * Record that every action up to and including {@code seq} is written to the database.
+     */
+    void commit(long seq) throws IOException {
+        writer.write("C\t" + seq + '\n');
+        flush();
+    }
+
+    /**
+     * Replace the journal with the given still pending actions, dropping everything already committed.
+     */
+    void rewrite(Collection<PendingAction> pending) throws IOException {
+        if (pending.isEmpty()) {
+            writer.flush();
+            channel.truncate(0);
+            return;
+        }
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel tmpChannel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            Writer out = Channels.newWriter(tmpChannel, StandardCharsets.UTF_8);
+            for (PendingAction action : pending) {
+                out.write(record(action));
+            }
+            out.flush();
+            if (sync) {
+                tmpChannel.force(false);
+            }
+        }
+        close();
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        open();
+    }
+
+    /**
+     * Current journal size in bytes.
+     */
+    long size() throws IOException {
+        return channel.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    private void open() throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        writer = Channels.newWriter(channel, StandardCharsets.UTF_8);
+    }
+
+    private void flush() throws IOException {
+        writer.flush();
+        if (sync) {
+            channel.force(false);
+        }
+    }
+
+    private static String record(PendingAction pending) {
+        EcoAction action = pending.getAction();
+        return "A\t" + pending.getSeq() + '\t' + pending.getUserId() + '\t' + action.getActionType().name()
+                + '\t' + action.getDate() + '\t' + action.getPoints() + '\t' + escape(action.getDescription()) + '\n';
+    }
+
+    private static PendingAction parse(String line) {
+        String[] fields = line.split("\t", 7);
+        if (fields.length < 7) {
+            throw new IllegalArgumentException("truncated record");
+        }
+        EcoAction action = EcoAction.builder()
+                .actionType(ActionType.valueOf(fields[3]))
+                .date(LocalDate.parse(fields[4]))
+                .points(Integer.parseInt(fields[5]))
+                .description(unescape(fields[6]))
+                .build();
+        return new PendingAction(Long.parseLong(fields[1]), Long.valueOf(fields[2]), action);
+    }
+
+    private static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    private static String unescape(String value) {
+        StringBuilder out = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                out.append(switch (next) {
+                    case 't' -> '\t';
+                    case 'n' -> '\n';
+                    case 'r' -> '\r';
+                    default -> next;
+                });
+            } else {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,62 @@
+package com.ecotrack.service;
+
+import com.ecotrack.model.EcoAction;
+import lombok.Value;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * One keyset page of a user's actions in (date desc, id desc) order.
+ * The cursor is an opaque "date_id" token identifying the last row of the page.
+ */
+@Value
+public class ActionPage {
+
+    List<EcoAction> items;
+
+    /**
+     * Cursor to request the following page, or null when this is the last page.
+     */
+    String nextCursor;
+
+    /**
+     * Encode the position of an action as a cursor.
+     *
+     * @param action last action of a page
+     * @return cursor token
+     */
+    public static String cursorOf(EcoAction action) {
+        return action.getDate() + "_" + action.getId();
+    }
+
+    /**
+     * Decode the date part of a cursor.
+     *
+     * @param cursor cursor token
+     * @return date of the last action of the previous page
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    static LocalDate cursorDate(String cursor) {
+        return LocalDate.parse(cursor.substring(0, separatorIndex(cursor)));
+    }
+
+    /**
+     * Decode the id part of a cursor.
+     *
+     * @param cursor cursor token
+     * @return id of the last action of the previous page
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    static long cursorId(String cursor) {
+        return Long.parseLong(cursor.substring(separatorIndex(cursor) + 1));
+    }
+
+    private static int separatorIndex(String cursor) {
+        int index = cursor.indexOf('_');
+        if (index < 0) {
+            throw new IllegalArgumentException("Malformed cursor: " + cursor);
+        }
+        return index;
+    }
+}
@@ -0,0 +1,35 @@
+package com.ecotrack.service;
+
+import com.ecotrack.enums.ActionType;
+import lombok.Value;
+
+/**
+ * Organisation-wide totals of one action type within one period, optionally for a single cohort.
+ * Percentiles are of the points per action, resolved to the roll-up histogram buckets: each is the upper
+ * bound of the bucket holding that rank.
+ */
+@Value
+public class ActionReportRow {
+
+    /**
+     * Period label as on the dashboard chart ("YYYY-MM-DD", "YYYY-WW" or "YYYY-MM").
+     */
+    String period;
+
+    ActionType actionType;
+
+    /**
+     * Registration month of the users counted, or null when the row covers every cohort.
+     */
+    String cohort;
+
+    long actions;
+
+    long points;
+
+    int p50;
+
+    int p90;
+
+    int p99;
+}
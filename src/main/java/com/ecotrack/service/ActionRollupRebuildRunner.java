@@ -0,0 +1,40 @@
+package com.ecotrack.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * Rebuilds the action roll-ups on startup when the application is started with {@code --rebuild-rollups},
+ * for example after upgrading a database that already holds actions or to repair drift. Runners start after
+ * the web server, so this node, like the other nodes of a cluster, already serves requests during the
+ * rebuild: reports show the previous roll-ups and action writes wait until the rebuild has committed (see
+ * {@link ActionRollupService#rebuild()}).
+ */
+@Component
+public class ActionRollupRebuildRunner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(ActionRollupRebuildRunner.class);
+
+    static final String OPTION = "rebuild-rollups";
+
+    private final ActionRollupService actionRollupService;
+
+    @Autowired
+    public ActionRollupRebuildRunner(ActionRollupService actionRollupService) {
+        this.actionRollupService = actionRollupService;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (args.containsOption(OPTION)) {
+            actionRollupService.rebuild();
+        } else if (actionRollupService.isMissing()) {
+            log.warn("Action roll-ups are empty although actions exist; reports stay empty until the application "
+                    + "is started once with --{}", OPTION);
+        }
+    }
+}
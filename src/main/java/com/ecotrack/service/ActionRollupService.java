@@ -0,0 +1,303 @@
+package com.ecotrack.service;
+
+import com.ecotrack.enums.ActionType;
+import com.ecotrack.enums.TimeGranularity;
+import com.ecotrack.model.ActionRollup;
+import com.ecotrack.model.EcoAction;
+import com.ecotrack.model.EcoActionArchive;
+import com.ecotrack.repository.ActionRollupRepository;
+import com.ecotrack.repository.DailyTypePoints;
+import com.ecotrack.repository.EcoActionArchiveRepository;
+import com.ecotrack.repository.EcoActionRepository;
+import com.ecotrack.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.temporal.WeekFields;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Maintains the organisation-wide {@link ActionRollup}s and answers reports from them.
+ * Writers add and remove actions in the same transaction as the action change: the deltas are merged per
+ * (day, type, cohort) and upserted just before commit, in that key order, so transactions touching the same
+ * hot rows lock them in the same order and hold the locks only while committing. Reports read at most one row
+ * per day, type and cohort of the requested range and fold them into periods in memory. {@link #rebuild()}
+ * recomputes everything from the raw and archived actions.
+ */
+@Service
+public class ActionRollupService {
+
+    private static final Logger log = LoggerFactory.getLogger(ActionRollupService.class);
+
+    static final String UNKNOWN_COHORT = "unknown";
+
+    private static final Comparator<RollupKey> KEY_ORDER = Comparator.comparing(RollupKey::getDay)
+            .thenComparing(RollupKey::getActionType)
+            .thenComparing(RollupKey::getCohort);
+
+    private final ActionRollupRepository rollupRepository;
+    private final EcoActionRepository ecoActionRepository;
+    private final EcoActionArchiveRepository archiveRepository;
+    private final UserRepository userRepository;
+    // registration never changes, so a user's cohort can be cached for good
+    private final Cache<Long, String> cohorts = Caffeine.newBuilder().maximumSize(100_000).build();
+
+    @Autowired
+    public ActionRollupService(ActionRollupRepository rollupRepository,
+                               EcoActionRepository ecoActionRepository,
+                               EcoActionArchiveRepository archiveRepository,
+                               UserRepository userRepository) {
+        this.rollupRepository = rollupRepository;
+        this.ecoActionRepository = ecoActionRepository;
+        this.archiveRepository = archiveRepository;
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * Count newly written actions when the transaction writing them commits. Must run in that transaction.
+     *
+     * @param userId owner of the actions
+     * @param actions the actions
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void addActions(Long userId, Collection<EcoAction> actions) {
+        String cohort = cohortOf(userId);
+        Map<RollupKey, ActionRollup> deltas = pendingDeltas();
+        for (EcoAction action : actions) {
+            delta(deltas, action.getDate(), action.getActionType(), cohort).add(1, action.getPoints());
+        }
+    }
+
+    /**
+     * Uncount a deleted action, or the previous state of an edited one, when the transaction changing it commits.
+     * Must run in that transaction.
+     *
+     * @param userId owner of the action
+     * @param actionType type before the change
+     * @param date date before the change
+     * @param points points before the change
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void removeAction(Long userId, ActionType actionType, LocalDate date, int points) {
+        delta(pendingDeltas(), date, actionType, cohortOf(userId)).add(-1, points);
+    }
+
+    /**
+     * Report points, counts and points-per-action percentiles per action type and period.
+     *
+     * @param granularity period size
+     * @param from first day, inclusive
+     * @param to last day, inclusive
+     * @param cohort only count users of this cohort, or null for everyone
+     * @param byCohort report every cohort separately instead of merging them
+     * @return rows ordered by period, type and cohort
+     */
+    @Transactional(readOnly = true)
+    public List<ActionReportRow> report(TimeGranularity granularity, LocalDate from, LocalDate to, String cohort,
+                                        boolean byCohort) {
+        List<ActionRollup> rollups = cohort == null
+                ? rollupRepository.findByDayBetween(from, to)
+                : rollupRepository.findByDayBetweenAndCohort(from, to, cohort);
+        Map<ReportKey, long[]> totals = new HashMap<>();
+        int buckets = ActionRollup.BUCKET_BOUNDS.length;
+        for (ActionRollup rollup : rollups) {
+            ReportKey key = new ReportKey(granularity.key(rollup.getDay()), rollup.getActionType(),
+                    byCohort || cohort != null ? rollup.getCohort() : null);
+            // actions, points, then the histogram
+            long[] sums = totals.computeIfAbsent(key, k -> new long[2 + buckets]);
+            sums[0] += rollup.getActionCount();
+            sums[1] += rollup.getPoints();
+            long[] histogram = rollup.histogram();
+            for (int i = 0; i < buckets; i++) {
+                sums[2 + i] += histogram[i];
+            }
+        }
+        List<ActionReportRow> rows = new ArrayList<>(totals.size());
+        totals.forEach((key, sums) -> {
+            if (sums[0] > 0) {
+                rows.add(new ActionReportRow(granularity.label(key.getPeriod()), key.getActionType(), key.getCohort(),
+                        sums[0], sums[1], percentile(sums, 0.5), percentile(sums, 0.9), percentile(sums, 0.99)));
+            }
+        });
+        rows.sort(Comparator.comparing(ActionReportRow::getPeriod)
+                .thenComparing(ActionReportRow::getActionType)
+                .thenComparing(ActionReportRow::getCohort, Comparator.nullsFirst(Comparator.naturalOrder())));
+        return rows;
+    }
+
+    /**
+     * Replace every roll-up with one recomputed from the raw and archived actions, in one transaction so that
+     * reports keep reading the previous roll-ups until it commits. Archived actions only have weekly totals:
+     * they count on the Monday of their week, at their average points.
+     * <p>
+     * Every roll-up is locked before anything is read, so a write committing during the rebuild waits at its
+     * upsert and then adds its delta to the rebuilt row, while the actions, read only afterwards, include every
+     * write that committed before. Rows are overwritten in place rather than deleted and inserted again, so
+     * that the waiting upserts find them. Action writes therefore stall until the rebuild commits.
+     *
+     * @return number of roll-ups written
+     */
+    @Transactional(isolation = Isolation.REPEATABLE_READ)
+    public int rebuild() {
+        Map<RollupKey, ActionRollup> stored = new HashMap<>();
+        for (ActionRollup rollup : rollupRepository.lockAll()) {
+            stored.put(new RollupKey(rollup.getDay(), rollup.getActionType(), rollup.getCohort()), rollup);
+        }
+        Map<RollupKey, ActionRollup> rollups = new HashMap<>();
+        List<Long> userIds = userRepository.findAllIds();
+        for (Long userId : userIds) {
+            String cohort = cohortOf(userId);
+            for (DailyTypePoints row : ecoActionRepository.countByUserIdGroupByDateTypeAndPoints(userId)) {
+                int points = Math.toIntExact(row.getPoints() / row.getActions());
+                delta(rollups, row.getDate(), row.getActionType(), cohort).add(row.getActions(), points);
+            }
+            for (EcoActionArchive archived : archiveRepository.findByUserId(userId)) {
+                LocalDate monday = LocalDate.of(archived.getWeekYear(), 1, 4)
+                        .with(WeekFields.ISO.weekOfWeekBasedYear(), archived.getWeek())
+                        .with(DayOfWeek.MONDAY);
+                int average = Math.toIntExact(Math.round((double) archived.getPoints() / archived.getActionCount()));
+                ActionRollup rollup = delta(rollups, monday, archived.getActionType(), cohort);
+                rollup.add(archived.getActionCount(), average);
+                // keep the exact archived points rather than count * average
+                rollup.setPoints(rollup.getPoints() - (long) archived.getActionCount() * average + archived.getPoints());
+            }
+        }
+        rollups.forEach((key, rollup) -> {
+            ActionRollup existing = stored.remove(key);
+            if (existing != null) {
+                rollup.setId(existing.getId());
+            }
+        });
+        rollupRepository.deleteAllInBatch(stored.values());
+        rollupRepository.saveAll(rollups.values());
+        log.info("Rebuilt {} action roll-ups for {} users", rollups.size(), userIds.size());
+        return rollups.size();
+    }
+
+    /**
+     * Whether no roll-up exists yet although actions do, as after upgrading a database with history.
+     */
+    @Transactional(readOnly = true)
+    public boolean isMissing() {
+        return rollupRepository.count() == 0 && ecoActionRepository.count() + archiveRepository.count() > 0;
+    }
+
+    /**
+     * Deltas of the current transaction, bound to it until it completes.
+     */
+    private Map<RollupKey, ActionRollup> pendingDeltas() {
+        Flush flush = (Flush) TransactionSynchronizationManager.getResource(this);
+        if (flush == null) {
+            flush = new Flush();
+            TransactionSynchronizationManager.bindResource(this, flush);
+            TransactionSynchronizationManager.registerSynchronization(flush);
+        }
+        return flush.deltas;
+    }
+
+    private String cohortOf(Long userId) {
+        return cohorts.get(userId, id -> userRepository.findCreatedAtById(id)
+                .map(createdAt -> YearMonth.from(createdAt.atZone(ZoneOffset.UTC)).toString())
+                .orElse(UNKNOWN_COHORT));
+    }
+
+    private static ActionRollup delta(Map<RollupKey, ActionRollup> deltas, LocalDate day, ActionType actionType,
+                                      String cohort) {
+        return deltas.computeIfAbsent(new RollupKey(day, actionType, cohort), key -> newRollup(day, actionType, cohort));
+    }
+
+    private static ActionRollup newRollup(LocalDate day, ActionType actionType, String cohort) {
+        return ActionRollup.builder().day(day).actionType(actionType).cohort(cohort).build();
+    }
+
+    /**
+     * Upper bound of the histogram bucket holding the given rank.
+     */
+    private static int percentile(long[] sums, double quantile) {
+        long rank = (long) Math.ceil(quantile * sums[0]);
+        long seen = 0;
+        for (int i = 0; i < ActionRollup.BUCKET_BOUNDS.length; i++) {
+            seen += sums[2 + i];
+            if (seen >= rank) {
+                return ActionRollup.BUCKET_BOUNDS[i];
+            }
+        }
+        return ActionRollup.BUCKET_BOUNDS[ActionRollup.BUCKET_BOUNDS.length - 1];
+    }
+
+    private static boolean isEmpty(ActionRollup delta) {
+        if (delta.getActionCount() != 0 || delta.getPoints() != 0) {
+            return false;
+        }
+        for (long count : delta.histogram()) {
+            if (count != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private final class Flush implements TransactionSynchronization {
+
+        private final Map<RollupKey, ActionRollup> deltas = new TreeMap<>(KEY_ORDER);
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(ActionRollupService.this);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(ActionRollupService.this, this);
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            for (ActionRollup delta : deltas.values()) {
+                // an edit within one day, type and points bucket cancels out
+                if (!isEmpty(delta)) {
+                    rollupRepository.add(delta);
+                }
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(ActionRollupService.this);
+        }
+    }
+
+    @Value
+    private static class RollupKey {
+        LocalDate day;
+        ActionType actionType;
+        String cohort;
+    }
+
+    @Value
+    private static class ReportKey {
+        int period;
+        ActionType actionType;
+        String cohort;
+    }
+}
@@ -0,0 +1,137 @@
+package com.ecotrack.service;
+
+import com.ecotrack.repository.ActionEventRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Applies committed action events to users' streaks and achievements off the request thread. At most one
+ * task per user runs or waits at a time and it drains the user's outbox in id order, so a user's events are
+ * applied one after another while different users proceed in parallel on a small pool. Commits only signal
+ * the task; the events themselves are read from the outbox, and a periodic sweep picks up users whose
+ * signal was lost (a crash after commit, a failed task, another instance's writes).
+ */
+@Component
+public class ActivityEventConsumer implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ActivityEventConsumer.class);
+    private static final Duration SWEEP_AT_MOST = Duration.ofMinutes(5);
+
+    private final ActivityService activityService;
+    private final ActionEventRepository eventRepository;
+    private final JobLockService jobLockService;
+    private final int batchSize;
+    private final Duration sweepInterval;
+    private final ExecutorService workers;
+    /**
+     * Users with a task queued or running, mapped to whether events arrived since it last read the outbox.
+     */
+    private final Map<Long, AtomicBoolean> signals = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ActivityEventConsumer(ActivityService activityService,
+                                 ActionEventRepository eventRepository,
+                                 JobLockService jobLockService,
+                                 @Value("${ecotrack.activity.batch-size:500}") int batchSize,
+                                 @Value("${ecotrack.activity.threads:2}") int threads,
+                                 @Value("${ecotrack.activity.sweep-interval-ms:60000}") long sweepIntervalMs) {
+        this.activityService = activityService;
+        this.eventRepository = eventRepository;
+        this.jobLockService = jobLockService;
+        this.batchSize = batchSize;
+        this.sweepInterval = Duration.ofMillis(sweepIntervalMs);
+        AtomicInteger counter = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "activity-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onActionChanged(EcoActionEvent event) {
+        schedule(event.getUserId());
+    }
+
+    /**
+     * Apply a user's pending events soon.
+     */
+    public void schedule(Long userId) {
+        boolean[] start = new boolean[1];
+        AtomicBoolean signal = signals.compute(userId, (id, existing) -> {
+            if (existing == null) {
+                start[0] = true;
+                return new AtomicBoolean(true);
+            }
+            existing.set(true);
+            return existing;
+        });
+        if (start[0]) {
+            try {
+                workers.execute(() -> drain(userId, signal));
+            } catch (RejectedExecutionException e) {
+                signals.remove(userId, signal);
+            }
+        }
+    }
+
+    /**
+     * Schedule every user with pending events. One node of a cluster sweeps per interval; the events it finds
+     * are applied on that node.
+     */
+    @Scheduled(fixedDelayString = "${ecotrack.activity.sweep-interval-ms:60000}")
+    public void sweep() {
+        jobLockService.runExclusively("activity-sweep", SWEEP_AT_MOST, sweepInterval.dividedBy(2),
+                () -> eventRepository.findUserIds().forEach(this::schedule));
+    }
+
+    @Override
+    public void destroy() {
+        workers.shutdownNow();
+    }
+
+    private void drain(Long userId, AtomicBoolean signal) {
+        try {
+            do {
+                signal.set(false);
+                while (activityService.applyPending(userId, batchSize) == batchSize) {
+                    // a full batch: more may follow
+                }
+            } while (!finished(userId, signal));
+        } catch (RuntimeException e) {
+            // the events stay in the outbox for the next signal or sweep
+            log.warn("Could not apply action events of user {}", userId, e);
+            signals.remove(userId, signal);
+        }
+    }
+
+    /**
+     * Retire the task unless events arrived while it was applying; atomic with {@link #schedule}.
+     */
+    private boolean finished(Long userId, AtomicBoolean signal) {
+        boolean[] again = new boolean[1];
+        signals.computeIfPresent(userId, (id, current) -> {
+            if (current == signal && signal.get()) {
+                again[0] = true;
+                return current;
+            }
+            return current == signal ? null : current;
+        });
+        return !again[0];
+    }
+}
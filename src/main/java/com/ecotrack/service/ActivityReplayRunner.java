@@ -0,0 +1,38 @@
+package com.ecotrack.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * Replays every user's streaks and achievements from their actions on startup when the application is started
+ * with {@code --replay-activity}, for example after upgrading a database that already holds actions, after
+ * changing the achievements, or to repair drift.
+ */
+@Component
+public class ActivityReplayRunner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(ActivityReplayRunner.class);
+
+    static final String OPTION = "replay-activity";
+
+    private final ActivityService activityService;
+
+    @Autowired
+    public ActivityReplayRunner(ActivityService activityService) {
+        this.activityService = activityService;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (args.containsOption(OPTION)) {
+            activityService.replayAll();
+        } else if (activityService.isMissing()) {
+            log.warn("No streaks recorded although actions exist; streaks and achievements only count new actions "
+                    + "until the application is started once with --{}", OPTION);
+        }
+    }
+}
@@ -0,0 +1,420 @@
+package com.ecotrack.service;
+
+import com.ecotrack.enums.Achievement;
+import com.ecotrack.enums.ActionType;
+import com.ecotrack.enums.StreakUnit;
+import com.ecotrack.model.ActionEvent;
+import com.ecotrack.model.EcoActionArchive;
+import com.ecotrack.model.StreakRun;
+import com.ecotrack.model.UserAchievement;
+import com.ecotrack.model.UserActivityDay;
+import com.ecotrack.model.UserActivityState;
+import com.ecotrack.repository.ActionEventRepository;
+import com.ecotrack.repository.DailyTypePoints;
+import com.ecotrack.repository.EcoActionArchiveRepository;
+import com.ecotrack.repository.EcoActionRepository;
+import com.ecotrack.repository.StreakRunRepository;
+import com.ecotrack.repository.UserAchievementRepository;
+import com.ecotrack.repository.UserActivityDayRepository;
+import com.ecotrack.repository.UserActivityStateRepository;
+import com.ecotrack.repository.UserRepository;
+import lombok.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.WeekFields;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Maintains users' streaks and achievements incrementally from {@link ActionEvent}s. An event touches the
+ * count of its day and type; only when a day or week becomes active or inactive are the neighbouring
+ * {@link StreakRun}s extended, merged, shrunk or split, and only the achievements of the streaks touched are
+ * re-evaluated. The work per event is a handful of indexed lookups whatever the length of the history, and
+ * back-dated actions are no different from current ones.
+ * <p>
+ * The state is a function of the set of active days alone, so applying events in any order gives the same
+ * result, and {@link #replay(Long)} rebuilds it from the actions.
+ */
+@Service
+public class ActivityService {
+
+    private static final Logger log = LoggerFactory.getLogger(ActivityService.class);
+
+    private final ActionEventRepository eventRepository;
+    private final UserActivityStateRepository stateRepository;
+    private final UserActivityDayRepository dayRepository;
+    private final StreakRunRepository runRepository;
+    private final UserAchievementRepository achievementRepository;
+    private final EcoActionRepository ecoActionRepository;
+    private final EcoActionArchiveRepository archiveRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate replayTransaction;
+
+    @Autowired
+    public ActivityService(ActionEventRepository eventRepository,
+                           UserActivityStateRepository stateRepository,
+                           UserActivityDayRepository dayRepository,
+                           StreakRunRepository runRepository,
+                           UserAchievementRepository achievementRepository,
+                           EcoActionRepository ecoActionRepository,
+                           EcoActionArchiveRepository archiveRepository,
+                           UserRepository userRepository,
+                           PlatformTransactionManager transactionManager) {
+        this.eventRepository = eventRepository;
+        this.stateRepository = stateRepository;
+        this.dayRepository = dayRepository;
+        this.runRepository = runRepository;
+        this.achievementRepository = achievementRepository;
+        this.ecoActionRepository = ecoActionRepository;
+        this.archiveRepository = archiveRepository;
+        this.userRepository = userRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.replayTransaction = new TransactionTemplate(transactionManager);
+        // the actions and the events must be read from one snapshot
+        this.replayTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    /**
+     * Apply the oldest unapplied events of a user and delete them, in one transaction holding the user's
+     * state lock. An event is applied exactly once: a concurrent consumer waits for the lock and then no
+     * longer finds it.
+     *
+     * @param userId the owner
+     * @param batchSize maximum number of events
+     * @return number of events applied
+     */
+    public int applyPending(Long userId, int batchSize) {
+        Integer applied = transactionTemplate.execute(status -> {
+            UserActivityState state = lockState(userId);
+            List<ActionEvent> events = eventRepository.findByUserIdOrderById(userId, PageRequest.of(0, batchSize));
+            if (events.isEmpty()) {
+                return 0;
+            }
+            Set<Scope> touched = new HashSet<>();
+            for (ActionEvent event : events) {
+                switch (event.getChange()) {
+                    case CREATED -> add(userId, event.getActionType(), event.getDate(), touched);
+                    case DELETED -> remove(userId, event.getActionType(), event.getDate(), touched);
+                    case UPDATED -> {
+                        if (event.getActionType() != event.getPreviousActionType()
+                                || !event.getDate().equals(event.getPreviousDate())) {
+                            remove(userId, event.getPreviousActionType(), event.getPreviousDate(), touched);
+                            add(userId, event.getActionType(), event.getDate(), touched);
+                        }
+                    }
+                }
+            }
+            evaluateAchievements(userId, touched);
+            eventRepository.deleteAllInBatch(events);
+            state.setUpdatedAt(Instant.now());
+            return events.size();
+        });
+        return applied == null ? 0 : applied;
+    }
+
+    /**
+     * Rebuild a user's activity from scratch out of their actions, dropping the events already reflected in
+     * them. Archived actions only have weekly totals: they count as active on the Monday of their week, which
+     * keeps weekly streaks exact but breaks daily streaks older than the archive retention.
+     *
+     * @param userId the owner
+     */
+    public void replay(Long userId) {
+        replayTransaction.executeWithoutResult(status -> {
+            UserActivityState state = lockState(userId);
+            List<ActionEvent> reflected = eventRepository.findByUserIdOrderById(userId, Pageable.unpaged());
+            Map<DayKey, UserActivityDay> days = new HashMap<>();
+            for (DailyTypePoints row : ecoActionRepository.sumByUserIdGroupByDateAndType(userId)) {
+                count(days, userId, row.getDate(), row.getActionType(), Math.toIntExact(row.getActions()));
+            }
+            for (EcoActionArchive archived : archiveRepository.findByUserId(userId)) {
+                LocalDate monday = LocalDate.of(archived.getWeekYear(), 1, 4)
+                        .with(WeekFields.ISO.weekOfWeekBasedYear(), archived.getWeek())
+                        .with(DayOfWeek.MONDAY);
+                count(days, userId, monday, archived.getActionType(), archived.getActionCount());
+            }
+
+            achievementRepository.deleteByUserId(userId);
+            runRepository.deleteByUserId(userId);
+            dayRepository.deleteByUserId(userId);
+            dayRepository.saveAll(days.values());
+
+            Map<Scope, TreeSet<LocalDate>> activeByScope = new HashMap<>();
+            for (UserActivityDay day : days.values()) {
+                LocalDate monday = day.getDay().with(DayOfWeek.MONDAY);
+                activeByScope.computeIfAbsent(new Scope(StreakUnit.DAY, day.getActionType()), s -> new TreeSet<>())
+                        .add(day.getDay());
+                activeByScope.computeIfAbsent(new Scope(StreakUnit.DAY, null), s -> new TreeSet<>()).add(day.getDay());
+                activeByScope.computeIfAbsent(new Scope(StreakUnit.WEEK, null), s -> new TreeSet<>()).add(monday);
+            }
+            List<StreakRun> runs = new ArrayList<>();
+            activeByScope.forEach((scope, active) -> runs.addAll(runsOf(userId, scope, active)));
+            runRepository.saveAll(runs);
+
+            Set<Scope> all = new HashSet<>();
+            for (Achievement achievement : Achievement.values()) {
+                all.add(Scope.of(achievement));
+            }
+            evaluateAchievements(userId, all);
+            eventRepository.deleteAllInBatch(reflected);
+            state.setUpdatedAt(Instant.now());
+        });
+    }
+
+    /**
+     * Replay every user's activity, one transaction per user.
+     *
+     * @return number of users replayed
+     */
+    public int replayAll() {
+        List<Long> userIds = userRepository.findAllIds();
+        for (Long userId : userIds) {
+            replay(userId);
+        }
+        log.info("Replayed streaks and achievements of {} users", userIds.size());
+        return userIds.size();
+    }
+
+    /**
+     * Whether no activity has been recorded yet although actions exist, as after upgrading a database with
+     * history.
+     */
+    @Transactional(readOnly = true)
+    public boolean isMissing() {
+        return stateRepository.count() == 0 && ecoActionRepository.count() + archiveRepository.count() > 0;
+    }
+
+    /**
+     * Current and longest streaks and the achievements of a user, read from the maintained state. Events not
+     * applied yet are not reflected.
+     *
+     * @param userId the owner
+     * @param today the day the current streaks are measured at
+     * @return the user's activity
+     */
+    @Transactional(readOnly = true)
+    public ActivitySummary getSummary(Long userId, LocalDate today) {
+        int currentDays = runRepository.findFirstByUserIdAndUnitAndActionTypeOrderByEndDayDesc(userId,
+                        StreakUnit.DAY, null)
+                // a streak is not broken before the day is over
+                .filter(run -> !run.getEndDay().isBefore(today.minusDays(1)))
+                .map(StreakRun::getLength)
+                .orElse(0);
+        int currentWeeks = runRepository.findFirstByUserIdAndUnitAndActionTypeOrderByEndDayDesc(userId,
+                        StreakUnit.WEEK, null)
+                .filter(run -> !run.getEndDay().isBefore(today.with(DayOfWeek.MONDAY).minusWeeks(1)))
+                .map(StreakRun::getLength)
+                .orElse(0);
+        int longestDays = runRepository.findFirstByUserIdAndUnitAndActionTypeOrderByLengthDesc(userId,
+                StreakUnit.DAY, null).map(StreakRun::getLength).orElse(0);
+        return new ActivitySummary(currentDays, longestDays, currentWeeks,
+                achievementRepository.findByUserIdOrderByEarnedOn(userId));
+    }
+
+    private UserActivityState lockState(Long userId) {
+        stateRepository.ensureExists(userId);
+        return stateRepository.lock(userId);
+    }
+
+    /**
+     * Count one action of a type on a day, extending streaks if the day or its week becomes active.
+     */
+    private void add(Long userId, ActionType actionType, LocalDate date, Set<Scope> touched) {
+        Optional<UserActivityDay> existing = dayRepository.findByUserIdAndDayAndActionType(userId, date, actionType);
+        if (existing.isPresent()) {
+            existing.get().setActions(existing.get().getActions() + 1);
+            return;
+        }
+        LocalDate monday = date.with(DayOfWeek.MONDAY);
+        boolean dayActive = dayRepository.existsByUserIdAndDayBetween(userId, date, date);
+        boolean weekActive = dayActive || dayRepository.existsByUserIdAndDayBetween(userId, monday, monday.plusDays(6));
+        dayRepository.save(UserActivityDay.builder()
+                .userId(userId).day(date).actionType(actionType).actions(1).build());
+        extend(userId, new Scope(StreakUnit.DAY, actionType), date, touched);
+        if (!dayActive) {
+            extend(userId, new Scope(StreakUnit.DAY, null), date, touched);
+        }
+        if (!weekActive) {
+            extend(userId, new Scope(StreakUnit.WEEK, null), monday, touched);
+        }
+    }
+
+    /**
+     * Uncount one action of a type on a day, shrinking or splitting streaks if the day or its week becomes
+     * inactive.
+     */
+    private void remove(Long userId, ActionType actionType, LocalDate date, Set<Scope> touched) {
+        Optional<UserActivityDay> existing = dayRepository.findByUserIdAndDayAndActionType(userId, date, actionType);
+        if (existing.isEmpty()) {
+            // recorded before the activity was, or state lost: a replay repairs it
+            log.debug("No {} activity of user {} on {} to remove", actionType, userId, date);
+            return;
+        }
+        UserActivityDay day = existing.get();
+        if (day.getActions() > 1) {
+            day.setActions(day.getActions() - 1);
+            return;
+        }
+        dayRepository.delete(day);
+        LocalDate monday = date.with(DayOfWeek.MONDAY);
+        shrink(userId, new Scope(StreakUnit.DAY, actionType), date, touched);
+        if (!dayRepository.existsByUserIdAndDayBetween(userId, date, date)) {
+            shrink(userId, new Scope(StreakUnit.DAY, null), date, touched);
+            if (!dayRepository.existsByUserIdAndDayBetween(userId, monday, monday.plusDays(6))) {
+                shrink(userId, new Scope(StreakUnit.WEEK, null), monday, touched);
+            }
+        }
+    }
+
+    /**
+     * Add a period to the runs of a scope: extend the run ending just before it or starting just after it,
+     * merge both, or start a new run.
+     */
+    private void extend(Long userId, Scope scope, LocalDate period, Set<Scope> touched) {
+        int step = scope.unit.getDays();
+        Optional<StreakRun> before = runRepository.findByUserIdAndUnitAndActionTypeAndEndDay(userId, scope.unit,
+                scope.actionType, period.minusDays(step));
+        Optional<StreakRun> after = runRepository.findByUserIdAndUnitAndActionTypeAndStartDay(userId, scope.unit,
+                scope.actionType, period.plusDays(step));
+        if (before.isPresent() && after.isPresent()) {
+            StreakRun merged = before.get();
+            merged.setEndDay(after.get().getEndDay());
+            merged.setLength(merged.getLength() + 1 + after.get().getLength());
+            runRepository.delete(after.get());
+        } else if (before.isPresent()) {
+            before.get().setEndDay(period);
+            before.get().setLength(before.get().getLength() + 1);
+        } else if (after.isPresent()) {
+            after.get().setStartDay(period);
+            after.get().setLength(after.get().getLength() + 1);
+        } else {
+            runRepository.save(StreakRun.builder().userId(userId).unit(scope.unit).actionType(scope.actionType)
+                    .startDay(period).endDay(period).length(1).build());
+        }
+        touched.add(scope);
+    }
+
+    /**
+     * Remove a period from the run of a scope containing it, splitting the run if the period is inside it.
+     */
+    private void shrink(Long userId, Scope scope, LocalDate period, Set<Scope> touched) {
+        int step = scope.unit.getDays();
+        Optional<StreakRun> containing = runRepository
+                .findByUserIdAndUnitAndActionTypeAndStartDayLessThanEqualAndEndDayGreaterThanEqual(userId, scope.unit,
+                        scope.actionType, period, period);
+        if (containing.isEmpty()) {
+            return;
+        }
+        StreakRun run = containing.get();
+        if (run.getLength() == 1) {
+            runRepository.delete(run);
+        } else if (period.equals(run.getStartDay())) {
+            run.setStartDay(period.plusDays(step));
+            run.setLength(run.getLength() - 1);
+        } else if (period.equals(run.getEndDay())) {
+            run.setEndDay(period.minusDays(step));
+            run.setLength(run.getLength() - 1);
+        } else {
+            int lengthBefore = Math.toIntExact(ChronoUnit.DAYS.between(run.getStartDay(), period) / step);
+            runRepository.save(StreakRun.builder().userId(userId).unit(scope.unit).actionType(scope.actionType)
+                    .startDay(period.plusDays(step)).endDay(run.getEndDay())
+                    .length(run.getLength() - lengthBefore - 1).build());
+            run.setEndDay(period.minusDays(step));
+            run.setLength(lengthBefore);
+        }
+        touched.add(scope);
+    }
+
+    /**
+     * Grant, re-date or revoke the achievements of the given scopes to match the user's runs. Idempotent.
+     */
+    private void evaluateAchievements(Long userId, Set<Scope> scopes) {
+        for (Achievement achievement : Achievement.values()) {
+            if (!scopes.contains(Scope.of(achievement))) {
+                continue;
+            }
+            Optional<LocalDate> earnedOn = runRepository
+                    .findFirstByUserIdAndUnitAndActionTypeAndLengthGreaterThanEqualOrderByStartDay(userId,
+                            achievement.getUnit(), achievement.getActionType(), achievement.getLength())
+                    .map(run -> run.getStartDay()
+                            .plusDays((long) (achievement.getLength() - 1) * achievement.getUnit().getDays()));
+            Optional<UserAchievement> held = achievementRepository.findByUserIdAndAchievement(userId, achievement);
+            if (earnedOn.isPresent() && held.isEmpty()) {
+                achievementRepository.save(UserAchievement.builder()
+                        .userId(userId).achievement(achievement).earnedOn(earnedOn.get()).build());
+                log.debug("User {} earned {}", userId, achievement);
+            } else if (earnedOn.isPresent()) {
+                held.get().setEarnedOn(earnedOn.get());
+            } else if (held.isPresent()) {
+                // the actions that earned it were deleted
+                achievementRepository.delete(held.get());
+            }
+        }
+    }
+
+    private static void count(Map<DayKey, UserActivityDay> days, Long userId, LocalDate date, ActionType actionType,
+                              int actions) {
+        UserActivityDay day = days.computeIfAbsent(new DayKey(date, actionType), key -> UserActivityDay.builder()
+                .userId(userId).day(date).actionType(actionType).build());
+        day.setActions(day.getActions() + actions);
+    }
+
+    /**
+     * Maximal runs of consecutive periods in a sorted set of active periods.
+     */
+    private static List<StreakRun> runsOf(Long userId, Scope scope, TreeSet<LocalDate> active) {
+        int step = scope.unit.getDays();
+        List<StreakRun> runs = new ArrayList<>();
+        StreakRun run = null;
+        for (LocalDate period : active) {
+            if (run != null && run.getEndDay().plusDays(step).equals(period)) {
+                run.setEndDay(period);
+                run.setLength(run.getLength() + 1);
+            } else {
+                run = StreakRun.builder().userId(userId).unit(scope.unit).actionType(scope.actionType)
+                        .startDay(period).endDay(period).length(1).build();
+                runs.add(run);
+            }
+        }
+        return runs;
+    }
+
+    /**
+     * Unit and action type of a family of runs; a null type stands for actions of any type.
+     */
+    @Value
+    private static class Scope {
+        StreakUnit unit;
+        ActionType actionType;
+
+        static Scope of(Achievement achievement) {
+            return new Scope(achievement.getUnit(), achievement.getActionType());
+        }
+    }
+
+    @Value
+    private static class DayKey {
+        LocalDate day;
+        ActionType actionType;
+    }
+}
@@ -0,0 +1,30 @@
+package com.ecotrack.service;
+
+import com.ecotrack.model.UserAchievement;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Streaks and achievements of a user as shown on the dashboard.
+ */
+@Value
+public class ActivitySummary {
+
+    /**
+     * Consecutive active days up to today or yesterday, 0 if the streak is broken.
+     */
+    int currentDayStreak;
+
+    int longestDayStreak;
+
+    /**
+     * Consecutive active ISO weeks up to this week or last week, 0 if the streak is broken.
+     */
+    int currentWeekStreak;
+
+    /**
+     * Achievements held, earliest first.
+     */
+    List<UserAchievement> achievements;
+}
@@ -0,0 +1,41 @@
+package com.ecotrack.service;
+
+import com.ecotrack.enums.ClusterChangeType;
+import lombok.Value;
+
+import java.time.LocalDate;
+
+/**
+ * A change committed by another node of the cluster, published by {@link ClusterChangeLog} on the node
+ * reading it. Listeners drop or refresh what they keep in memory of the user; the change itself is in the
+ * database already, so they handle it like the local event of the same change after commit.
+ */
+@Value
+public class ClusterChangeEvent {
+
+    ClusterChangeType type;
+
+    Long userId;
+
+    /**
+     * Email of the user; set for {@link ClusterChangeType#USER} changes.
+     */
+    String email;
+
+    /**
+     * Date of the actions whose points changed; set for {@link ClusterChangeType#POINTS} changes.
+     */
+    LocalDate date;
+
+    /**
+     * Points added (positive) or removed (negative); 0 for user changes.
+     */
+    long delta;
+
+    /**
+     * The change as the event the node that made it published.
+     */
+    public PointsChangedEvent toPointsChangedEvent() {
+        return new PointsChangedEvent(userId, date, delta);
+    }
+}
@@ -0,0 +1,239 @@
+package com.ecotrack.service;
+
+import com.ecotrack.enums.ClusterChangeType;
+import com.ecotrack.model.ClusterChange;
+import com.ecotrack.repository.ClusterChangeBatchRepository;
+import com.ecotrack.repository.ClusterChangeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Cluster-wide invalidation of what nodes keep in memory (cached user details and aggregates, rendered
+ * fragments, the leaderboard, open dashboards), through a change log in the shared database. Every user and
+ * points change is recorded in {@code cluster_changes} within the transaction making it, so a change is
+ * logged if and only if it committed; each node polls the log every {@code poll-interval-ms} and publishes the
+ * other nodes' changes as {@link ClusterChangeEvent}s. Nodes need no address of each other and can join or
+ * leave at any time: a node starting up follows the log from its end, with empty caches.
+ * <p>
+ * Ids are assigned at insert, not at commit, so a change may become visible after changes with higher ids.
+ * Ids skipped by the poll are remembered and looked for again until they appear or {@link #GAP_TIMEOUT}
+ * passes (a rolled back insert leaves a gap for good). Rows are purged after {@code retention}.
+ * <p>
+ * Enabled with {@code ecotrack.cluster.enabled} (the {@code cluster} profile); a single node needs none of it.
+ */
+@Component
+@ConditionalOnProperty(name = "ecotrack.cluster.enabled", havingValue = "true")
+public class ClusterChangeLog {
+
+    private static final Logger log = LoggerFactory.getLogger(ClusterChangeLog.class);
+
+    /**
+     * Longer than any transaction recording changes takes from its insert to its commit.
+     */
+    private static final Duration GAP_TIMEOUT = Duration.ofSeconds(30);
+    private static final int MAX_GAPS = 10_000;
+    private static final Duration PURGE_AT_MOST = Duration.ofMinutes(10);
+
+    private final ClusterChangeRepository changeRepository;
+    private final ClusterChangeBatchRepository changeBatchRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final JobLockService jobLockService;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final Duration retention;
+    private final Duration purgeInterval;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    // poll state, guarded by this
+    private long highestId = -1;
+    private final TreeMap<Long, Long> gapsNoticedAt = new TreeMap<>();
+
+    @Autowired
+    public ClusterChangeLog(ClusterChangeRepository changeRepository,
+                            ClusterChangeBatchRepository changeBatchRepository,
+                            ApplicationEventPublisher eventPublisher,
+                            JobLockService jobLockService,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${ecotrack.cluster.batch-size:1000}") int batchSize,
+                            @Value("${ecotrack.cluster.retention:1h}") Duration retention,
+                            @Value("${ecotrack.cluster.purge-interval-ms:600000}") long purgeIntervalMs) {
+        this.changeRepository = changeRepository;
+        this.changeBatchRepository = changeBatchRepository;
+        this.eventPublisher = eventPublisher;
+        this.jobLockService = jobLockService;
+        // read-write, so the log is read from the primary rather than a replica
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.retention = retention;
+        this.purgeInterval = Duration.ofMillis(purgeIntervalMs);
+    }
+
+    @EventListener
+    public void record(PointsChangedEvent event) {
+        record(ClusterChange.builder()
+                .type(ClusterChangeType.POINTS)
+                .userId(event.getUserId())
+                .date(event.getDate())
+                .delta(event.getDelta())
+                .build());
+    }
+
+    @EventListener
+    public void record(UserChangedEvent event) {
+        record(ClusterChange.builder()
+                .type(ClusterChangeType.USER)
+                .userId(event.getUserId())
+                .email(event.getEmail())
+                .build());
+    }
+
+    /**
+     * Publish the changes other nodes committed since the last poll.
+     */
+    @Scheduled(fixedDelayString = "${ecotrack.cluster.poll-interval-ms:1000}")
+    public void poll() {
+        List<ClusterChange> changes;
+        synchronized (this) {
+            changes = transactionTemplate.execute(status -> readNew());
+        }
+        for (ClusterChange change : changes) {
+            try {
+                eventPublisher.publishEvent(new ClusterChangeEvent(change.getType(), change.getUserId(),
+                        change.getEmail(), change.getDate(), change.getDelta() == null ? 0 : change.getDelta()));
+            } catch (RuntimeException e) {
+                // caches expire in any case; one failed listener must not hold up the log
+                log.warn("Could not apply cluster change {} of user {}", change.getId(), change.getUserId(), e);
+            }
+        }
+    }
+
+    /**
+     * Delete changes older than the retention period; every node has read them by then. One node purges per
+     * interval.
+     */
+    @Scheduled(fixedDelayString = "${ecotrack.cluster.purge-interval-ms:600000}")
+    public void purge() {
+        jobLockService.runExclusively("cluster-change-purge", PURGE_AT_MOST, purgeInterval.dividedBy(2), () -> {
+            Integer deleted = transactionTemplate.execute(status ->
+                    changeRepository.deleteByCreatedAtBefore(Instant.now().minus(retention)));
+            log.debug("Purged {} cluster changes", deleted);
+        });
+    }
+
+    private void record(ClusterChange change) {
+        change.setOrigin(nodeId);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            change.setCreatedAt(Instant.now());
+            changeBatchRepository.insertAll(List.of(change));
+            return;
+        }
+        // the buffer is bound to the transaction, so a suspended transaction keeps its own
+        Flush flush = (Flush) TransactionSynchronizationManager.getResource(this);
+        if (flush == null) {
+            flush = new Flush();
+            TransactionSynchronizationManager.bindResource(this, flush);
+            TransactionSynchronizationManager.registerSynchronization(flush);
+        }
+        // a transaction may change a user's points several times (a bulk delete once per action): log one sum per date
+        flush.changes.merge(new Key(change.getType(), change.getUserId(), change.getDate()), change,
+                (logged, next) -> {
+                    next.setDelta(logged.getDelta() == null ? next.getDelta() : logged.getDelta() + next.getDelta());
+                    return next;
+                });
+    }
+
+    /**
+     * Changes not read before, skipping this node's own. Advances the poll state.
+     */
+    private List<ClusterChange> readNew() {
+        if (highestId < 0) {
+            Long maxId = changeRepository.findMaxId();
+            highestId = maxId == null ? 0 : maxId;
+            log.info("Cluster node {} following the change log from change {}", nodeId, highestId);
+            return List.of();
+        }
+        long now = System.nanoTime();
+        gapsNoticedAt.values().removeIf(noticedAt -> now - noticedAt > GAP_TIMEOUT.toNanos());
+        List<ClusterChange> changes = new ArrayList<>();
+        long after = gapsNoticedAt.isEmpty() ? highestId : gapsNoticedAt.firstKey() - 1;
+        List<ClusterChange> page;
+        do {
+            page = changeRepository.findByIdGreaterThanOrderById(after, PageRequest.of(0, batchSize));
+            for (ClusterChange change : page) {
+                long id = change.getId();
+                after = id;
+                if (id > highestId) {
+                    if (id - highestId - 1 <= MAX_GAPS) {
+                        for (long missing = highestId + 1; missing < id; missing++) {
+                            gapsNoticedAt.put(missing, now);
+                        }
+                    }
+                    highestId = id;
+                } else if (gapsNoticedAt.remove(id) == null) {
+                    // read before
+                    continue;
+                }
+                if (!nodeId.equals(change.getOrigin())) {
+                    changes.add(change);
+                }
+            }
+        } while (page.size() == batchSize);
+        return changes;
+    }
+
+    @lombok.Value
+    private static class Key {
+        ClusterChangeType type;
+        Long userId;
+        LocalDate date;
+    }
+
+    private final class Flush implements TransactionSynchronization {
+
+        private final Map<Key, ClusterChange> changes = new LinkedHashMap<>();
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(ClusterChangeLog.this);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(ClusterChangeLog.this, this);
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            Instant now = Instant.now();
+            changes.values().forEach(change -> change.setCreatedAt(now));
+            changeBatchRepository.insertAll(new ArrayList<>(changes.values()));
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(ClusterChangeLog.this);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.ecotrack.service;
+
+import com.ecotrack.enums.TimeGranularity;
+import lombok.Value;
+
+import java.util.Map;
+
+/**
+ * What changed on a user's dashboard after a committed points change, pushed to open dashboards.
+ */
+@Value
+public class DashboardUpdate {
+
+    long totalPoints;
+
+    /**
+     * Level label for {@link #totalPoints}.
+     */
+    String level;
+
+    /**
+     * Points added (positive) or removed (negative) by the change.
+     */
+    long delta;
+
+    /**
+     * Label of the chart bucket the change falls in, per granularity; a granularity is missing when the change
+     * is outside the range its chart shows.
+     */
+    Map<TimeGranularity, String> buckets;
+
+    /**
+     * New points of the affected ISO week.
+     */
+    long weekPoints;
+}
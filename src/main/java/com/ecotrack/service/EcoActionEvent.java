@@ -0,0 +1,62 @@
+package com.ecotrack.service;
+
+import com.ecotrack.enums.ActionChange;
+import com.ecotrack.enums.ActionType;
+import com.ecotrack.model.EcoAction;
+import lombok.Value;
+
+import java.time.LocalDate;
+
+/**
+ * Published in the transaction of every write of an eco action: a save, an update or a delete, including
+ * imported and write-behind actions. {@link ActionEventOutbox} records it in the same transaction; the
+ * {@link ActivityEventConsumer} applies it to the user's streaks and achievements after commit.
+ */
+@Value
+public class EcoActionEvent {
+
+    ActionChange change;
+
+    Long userId;
+
+    /**
+     * Id of the action; null for actions written in JDBC batches.
+     */
+    Long actionId;
+
+    /**
+     * Type after the change, or of the deleted action.
+     */
+    ActionType actionType;
+
+    /**
+     * Date after the change, or of the deleted action; may lie in the past.
+     */
+    LocalDate date;
+
+    /**
+     * Type before an update, null otherwise.
+     */
+    ActionType previousActionType;
+
+    /**
+     * Date before an update, null otherwise.
+     */
+    LocalDate previousDate;
+
+    public static EcoActionEvent created(Long userId, EcoAction action) {
+        return new EcoActionEvent(ActionChange.CREATED, userId, action.getId(), action.getActionType(),
+                action.getDate(), null, null);
+    }
+
+    public static EcoActionEvent updated(Long userId, EcoAction action, ActionType previousActionType,
+                                         LocalDate previousDate) {
+        return new EcoActionEvent(ActionChange.UPDATED, userId, action.getId(), action.getActionType(),
+                action.getDate(), previousActionType, previousDate);
+    }
+
+    public static EcoActionEvent deleted(Long userId, EcoAction action) {
+        return new EcoActionEvent(ActionChange.DELETED, userId, action.getId(), action.getActionType(),
+                action.getDate(), null, null);
+    }
+}
@@ -1,37 +1,250 @@
 package com.ecotrack.service;
 
+import com.ecotrack.enums.ActionType;
+import com.ecotrack.enums.TimeGranularity;
 import com.ecotrack.model.EcoAction;
 import com.ecotrack.model.User;
+import com.ecotrack.model.UserWeeklyPoints;
+import com.ecotrack.repository.DailyPoints;
+import com.ecotrack.repository.EcoActionBatchRepository;
 import com.ecotrack.repository.EcoActionRepository;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
 import java.time.LocalDate;
-import java.time.temporal.WeekFields;
-import java.util.*;
-import java.util.stream.Collectors;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 /**
  * Service layer for CRUD operations and aggregate calculations around eco actions.
+ * Every write keeps the user's points summary up to date in the same transaction and publishes an
+ * {@link EcoActionEvent}; cached aggregates are evicted by {@link PointsCacheEvictor} once the write commits.
  */
 @Service
 public class EcoActionService {
 
+    private static final int MAX_DESCRIPTION_LENGTH = 255;
+    static final int DAY_SERIES_DAYS = 90;
+    static final int MONTH_SERIES_MONTHS = 24;
+
     private final EcoActionRepository ecoActionRepository;
+    private final EcoActionBatchRepository ecoActionBatchRepository;
+    private final PointsSummaryService pointsSummaryService;
+    private final ActionRollupService actionRollupService;
+    private final ActionIngestQueue actionIngestQueue;
+    private final PointsRulesService pointsRulesService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final int importBatchSize;
 
     @Autowired
-    public EcoActionService(EcoActionRepository ecoActionRepository) {
+    public EcoActionService(EcoActionRepository ecoActionRepository,
+                            EcoActionBatchRepository ecoActionBatchRepository,
+                            PointsSummaryService pointsSummaryService,
+                            ActionRollupService actionRollupService,
+                            ActionIngestQueue actionIngestQueue,
+                            PointsRulesService pointsRulesService,
+                            ApplicationEventPublisher eventPublisher,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${ecotrack.import.batch-size:500}") int importBatchSize) {
         this.ecoActionRepository = ecoActionRepository;
+        this.ecoActionBatchRepository = ecoActionBatchRepository;
+        this.pointsSummaryService = pointsSummaryService;
+        this.actionRollupService = actionRollupService;
+        this.actionIngestQueue = actionIngestQueue;
+        this.pointsRulesService = pointsRulesService;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.importBatchSize = importBatchSize;
     }
 
     /**
-     * Persist a new eco action.
+     * Persist a new eco action, already scored by {@link PointsRulesService#score}.
      *
      * @param action the action to save
      * @return saved entity
      */
+    @Timed(value = "ecotrack.service", histogram = true)
+    @Transactional
     public EcoAction save(EcoAction action) {
-        return ecoActionRepository.save(action);
+        EcoAction saved = ecoActionRepository.save(action);
+        pointsSummaryService.applyDelta(saved.getUser().getId(), saved.getDate(), saved.getPoints());
+        actionRollupService.addActions(saved.getUser().getId(), List.of(saved));
+        eventPublisher.publishEvent(EcoActionEvent.created(saved.getUser().getId(), saved));
+        return saved;
+    }
+
+    /**
+     * Bulk import actions for a user from CSV lines of the form {@code actionType,date,points,description},
+     * as exported by {@link ActionExportService#exportUser}. An optional header line is skipped and the
+     * description may contain commas; a quoted description may also contain doubled quotes and line breaks.
+     * The points column is ignored: imported actions are scored by the gamification rules like logged ones,
+     * so re-importing an export can change their points. The input is read record by record and written
+     * in JDBC batches of {@code ecotrack.import.batch-size} rows, each batch in
+     * its own transaction together with its points summary update, so memory use does not depend on
+     * the file size. Invalid rows are reported and skipped; batches already written stay committed if a
+     * later batch fails.
+     *
+     * @param userId owner of the imported actions
+     * @param source CSV input
+     * @return counts and per-row validation errors
+     * @throws IOException if the input cannot be read
+     */
+    @Timed(value = "ecotrack.service", histogram = true)
+    public ImportResult importActions(Long userId, Reader source) throws IOException {
+        ImportResult result = new ImportResult();
+        List<EcoAction> batch = new ArrayList<>(importBatchSize);
+        BufferedReader reader = new BufferedReader(source);
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            int recordLine = lineNumber;
+            String next;
+            // a quoted description with line breaks continues on the next lines
+            while (hasOpenQuote(line) && (next = reader.readLine()) != null) {
+                lineNumber++;
+                line = line + '\n' + next;
+            }
+            if (line.isBlank() || (recordLine == 1 && line.regionMatches(true, 0, "actionType", 0, 10))) {
+                continue;
+            }
+            try {
+                batch.add(parseImportLine(line));
+            } catch (IllegalArgumentException e) {
+                result.reject(recordLine, e.getMessage());
+                continue;
+            }
+            if (batch.size() == importBatchSize) {
+                writeBatch(userId, batch);
+                result.addImported(batch.size());
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            writeBatch(userId, batch);
+            result.addImported(batch.size());
+        }
+        return result;
+    }
+
+    private void writeBatch(Long userId, List<EcoAction> batch) {
+        pointsRulesService.score(userId, batch);
+        transactionTemplate.executeWithoutResult(status -> {
+            ecoActionBatchRepository.insertAll(userId, batch);
+            pointsSummaryService.applyBatch(userId, batch);
+            actionRollupService.addActions(userId, batch);
+            batch.forEach(action -> eventPublisher.publishEvent(EcoActionEvent.created(userId, action)));
+        });
+    }
+
+    /**
+     * Whether a CSV record ends inside a quoted field, counting a doubled quote twice.
+     */
+    private static boolean hasOpenQuote(String record) {
+        return record.chars().filter(c -> c == '"').count() % 2 != 0;
+    }
+
+    /**
+     * Parse and validate one CSV import record.
+     *
+     * @throws IllegalArgumentException describing the first invalid field
+     */
+    private static EcoAction parseImportLine(String line) {
+        String[] fields = line.split(",", 4);
+        if (fields.length < 4) {
+            throw new IllegalArgumentException("Expected 4 fields: actionType,date,points,description");
+        }
+        ActionType actionType;
+        try {
+            actionType = ActionType.valueOf(fields[0].trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown action type: " + fields[0].trim());
+        }
+        LocalDate date;
+        try {
+            date = LocalDate.parse(fields[1].trim());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date (expected yyyy-MM-dd): " + fields[1].trim());
+        }
+        String description = fields[3].trim();
+        if (description.length() >= 2 && description.startsWith("\"") && description.endsWith("\"")) {
+            description = description.substring(1, description.length() - 1).replace("\"\"", "\"");
+        }
+        if (description.isBlank()) {
+            throw new IllegalArgumentException("Description is required");
+        }
+        if (description.length() > MAX_DESCRIPTION_LENGTH) {
+            throw new IllegalArgumentException("Description is longer than " + MAX_DESCRIPTION_LENGTH + " characters");
+        }
+        return EcoAction.builder()
+                .actionType(actionType)
+                .date(date)
+                .description(description)
+                .build();
+    }
+
+    /**
+     * Find a single action owned by a user with one primary key lookup.
+     *
+     * @param userId the owner
+     * @param id action id
+     * @return the action, empty if missing or owned by another user
+     */
+    @Transactional(readOnly = true)
+    public Optional<EcoAction> findOwned(Long userId, Long id) {
+        return ecoActionRepository.findByIdAndUserId(id, userId);
+    }
+
+    /**
+     * Update an action owned by a user. A new type or date is scored again by the gamification rules and the
+     * points are moved in the summary if they or the date changed. Actions of other users are left untouched.
+     *
+     * @param userId the owner
+     * @param id action id
+     * @param actionType new type
+     * @param date new date
+     * @param description new description
+     * @return updated entity, empty if missing or owned by another user
+     */
+    @Transactional
+    public Optional<EcoAction> update(Long userId, Long id, ActionType actionType, LocalDate date,
+                                      String description) {
+        return ecoActionRepository.findByIdAndUserId(id, userId).map(action -> {
+            int points = actionType == action.getActionType() && date.equals(action.getDate())
+                    ? action.getPoints()
+                    : pointsRulesService.rescore(userId, id, actionType, date);
+            LocalDate oldDate = action.getDate();
+            ActionType oldType = action.getActionType();
+            int oldPoints = action.getPoints();
+            actionRollupService.removeAction(userId, action.getActionType(), oldDate, oldPoints);
+            action.setActionType(actionType);
+            action.setDate(date);
+            action.setDescription(description);
+            action.setPoints(points);
+            pointsSummaryService.applyChange(userId, oldDate, oldPoints, date, points);
+            actionRollupService.addActions(userId, List.of(action));
+            eventPublisher.publishEvent(EcoActionEvent.updated(userId, action, oldType, oldDate));
+            return action;
+        });
     }
 
     /**
@@ -40,50 +253,183 @@ public class EcoActionService {
      * @param user the owner
      * @return list of actions
      */
+    @Timed(value = "ecotrack.service", histogram = true)
+    @Transactional(readOnly = true)
     public List<EcoAction> findByUser(User user) {
         return ecoActionRepository.findByUserOrderByDateDesc(user);
     }
 
     /**
-     * Delete an action by id if it belongs to the user.
+     * Retrieve one keyset page of a user's actions ordered by date and id descending. The cost of a page
+     * does not depend on how deep it is or on the size of the user's history. Actions still waiting in the
+     * {@link ActionIngestQueue} are merged into the page their date falls in, ahead of written actions of the
+     * same date, and have no id.
+     *
+     * @param userId the owner
+     * @param cursor cursor returned with the previous page, or null for the newest actions;
+     *               a malformed cursor restarts from the newest actions
+     * @param size maximum number of written actions in the page
+     * @return the page and the cursor of the next one
+     */
+    @Timed(value = "ecotrack.service", histogram = true)
+    @Transactional(readOnly = true)
+    public ActionPage findPage(Long userId, String cursor, int size) {
+        // fetch one extra row to know whether another page follows
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<EcoAction> rows = null;
+        LocalDate before = null;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                before = ActionPage.cursorDate(cursor);
+                rows = ecoActionRepository.findPageAfter(userId, before, ActionPage.cursorId(cursor), limit);
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                before = null;
+                rows = null;
+            }
+        }
+        if (rows == null) {
+            rows = ecoActionRepository.findByUserIdOrderByDateDescIdDesc(userId, limit);
+        }
+        List<EcoAction> items = rows.size() <= size ? rows : rows.subList(0, size);
+        String nextCursor = rows.size() <= size ? null : ActionPage.cursorOf(items.get(size - 1));
+        LocalDate from = nextCursor == null ? null : items.get(size - 1).getDate();
+        return new ActionPage(withPending(userId, items, before, from), nextCursor);
+    }
+
+    /**
+     * Merge the user's pending actions dated in [from, before) into a page; unsaved actions sort as if they
+     * had the highest ids.
+     */
+    private List<EcoAction> withPending(Long userId, List<EcoAction> items, LocalDate before, LocalDate from) {
+        List<EcoAction> pending = actionIngestQueue.pending(userId);
+        if (pending.isEmpty()) {
+            return items;
+        }
+        List<EcoAction> merged = new ArrayList<>(items.size() + pending.size());
+        for (int i = pending.size() - 1; i >= 0; i--) {
+            LocalDate date = pending.get(i).getDate();
+            if ((before == null || date.isBefore(before)) && (from == null || !date.isBefore(from))) {
+                merged.add(pending.get(i));
+            }
+        }
+        merged.addAll(items);
+        // stable sort: pending actions stay ahead of written ones of the same date, newest first
+        merged.sort(Comparator.comparing(EcoAction::getDate).reversed());
+        return merged;
+    }
+
+    /**
+     * Delete an action owned by a user and remove its points from the summary.
+     * Actions of other users are left untouched.
      *
+     * @param userId the owner
      * @param id action id
+     * @return true if an action was deleted
      */
-    public void delete(long id) {
-        ecoActionRepository.deleteById(id);
+    @Transactional
+    public boolean delete(Long userId, Long id) {
+        return ecoActionRepository.findByIdAndUserId(id, userId)
+                .map(action -> {
+                    ecoActionRepository.delete(action);
+                    pointsSummaryService.applyDelta(userId, action.getDate(), -action.getPoints());
+                    actionRollupService.removeAction(userId, action.getActionType(), action.getDate(),
+                            action.getPoints());
+                    eventPublisher.publishEvent(EcoActionEvent.deleted(userId, action));
+                    return true;
+                })
+                .orElse(false);
     }
 
     /**
-     * Compute total points for a user.
+     * Describe a committed points change as it shows on the user's dashboard. Reads the primary in a new
+     * transaction, so it can be called after the change's own transaction has committed.
      *
-     * @param user the owner
+     * @param event the committed change
+     * @return new total, level and affected chart buckets
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public DashboardUpdate describeChange(PointsChangedEvent event) {
+        Long userId = event.getUserId();
+        LocalDate date = event.getDate();
+        long total = pointsSummaryService.getTotalPoints(userId);
+        Map<TimeGranularity, String> buckets = new EnumMap<>(TimeGranularity.class);
+        for (TimeGranularity granularity : TimeGranularity.values()) {
+            if (!date.isBefore(seriesStart(granularity))) {
+                buckets.put(granularity, granularity.label(granularity.key(date)));
+            }
+        }
+        return new DashboardUpdate(total, pointsRulesService.level(total), event.getDelta(), buckets,
+                pointsSummaryService.getWeekPoints(userId, date));
+    }
+
+    /**
+     * Compute total points for a user from the maintained summary. Cached until the user's next write.
+     *
+     * @param userId the owner
      * @return sum of points
      */
-    public int computeTotalPoints(User user) {
-        return findByUser(user).stream()
-                .mapToInt(EcoAction::getPoints)
-                .sum();
+    @Timed(value = "ecotrack.service", histogram = true)
+    @Transactional(readOnly = true)
+    @Cacheable(cacheNames = "totalPoints")
+    public int computeTotalPoints(Long userId) {
+        return Math.toIntExact(pointsSummaryService.getTotalPoints(userId));
     }
 
     /**
-     * Aggregate points per week (ISO week-of-year) for the given user. Useful for building a progress chart.
-     * The map key is a formatted string "YYYY-WW" representing the ISO week.
+     * Points series of a user for the dashboard chart. Cached until the user's next write, and day and month
+     * series only until the end of the day (see {@link #seriesCacheKey}).
+     * Weeks cover the whole history and come from the points summary; days cover the last
+     * {@value #DAY_SERIES_DAYS} days and months the last {@value #MONTH_SERIES_MONTHS} months, both folded
+     * from per-day sums.
      *
-     * @param user the owner
-     * @return map of week string to cumulative points in that week
+     * @param userId the owner
+     * @param granularity bucket size
+     * @return chronological series of non-empty buckets
+     */
+    @Timed(value = "ecotrack.service", histogram = true)
+    @Transactional(readOnly = true)
+    @Cacheable(cacheNames = "pointsSeries",
+            key = "T(com.ecotrack.service.EcoActionService).seriesCacheKey(#userId, #granularity)")
+    public PointsSeries computePointsSeries(Long userId, TimeGranularity granularity) {
+        if (granularity == TimeGranularity.WEEK) {
+            List<UserWeeklyPoints> weeks = pointsSummaryService.getWeeklyPoints(userId);
+            TimeBucketAggregator aggregator = new TimeBucketAggregator(granularity, weeks.size());
+            for (UserWeeklyPoints bucket : weeks) {
+                aggregator.addKey(TimeGranularity.weekKey(bucket.getWeekYear(), bucket.getWeek()),
+                        Math.toIntExact(bucket.getPoints()));
+            }
+            return aggregator.toSeries();
+        }
+        List<DailyPoints> days = ecoActionRepository.sumPointsByUserIdGroupByDateSince(userId,
+                seriesStart(granularity));
+        TimeBucketAggregator aggregator = new TimeBucketAggregator(granularity, days.size());
+        for (DailyPoints day : days) {
+            aggregator.add(day.getDate(), Math.toIntExact(day.getPoints()));
+        }
+        return aggregator.toSeries();
+    }
+
+    /**
+     * Cache key of a user's points series. Day and month series cover a window ending today, so their key
+     * includes today's date and a series cached yesterday is not served once the window has moved on.
+     *
+     * @param userId the owner
+     * @param granularity bucket size
+     * @return cache key
+     */
+    public static String seriesCacheKey(Long userId, TimeGranularity granularity) {
+        String key = userId + ":" + granularity.name();
+        return granularity == TimeGranularity.WEEK ? key : key + ":" + LocalDate.now();
+    }
+
+    /**
+     * First day shown by the dashboard series of a granularity; weeks cover the whole history.
      */
-    public Map<String, Integer> computePointsByWeek(User user) {
-        WeekFields weekFields = WeekFields.ISO;
-        return findByUser(user).stream()
-                .collect(Collectors.groupingBy(
-                        action -> {
-                            LocalDate date = action.getDate();
-                            int week = date.get(weekFields.weekOfWeekBasedYear());
-                            int year = date.get(weekFields.weekBasedYear());
-                            return String.format("%d-%02d", year, week);
-                        },
-                        TreeMap::new,
-                        Collectors.summingInt(EcoAction::getPoints)
-                ));
+    private static LocalDate seriesStart(TimeGranularity granularity) {
+        return switch (granularity) {
+            case DAY -> LocalDate.now().minusDays(DAY_SERIES_DAYS - 1);
+            case MONTH -> LocalDate.now().withDayOfMonth(1).minusMonths(MONTH_SERIES_MONTHS - 1);
+            case WEEK -> LocalDate.MIN;
+        };
     }
 }
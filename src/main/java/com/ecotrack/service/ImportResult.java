@@ -0,0 +1,48 @@
+package com.ecotrack.service;
+
+import lombok.Getter;
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a bulk import: how many rows were written and why the others were rejected.
+ * Only the first {@link #MAX_REPORTED_ERRORS} errors are kept to bound memory on bad files.
+ */
+@Getter
+public class ImportResult {
+
+    static final int MAX_REPORTED_ERRORS = 100;
+
+    private int importedRows;
+    private int rejectedRows;
+    private final List<RowError> errors = new ArrayList<>();
+
+    void addImported(int rows) {
+        importedRows += rows;
+    }
+
+    void reject(int lineNumber, String message) {
+        rejectedRows++;
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add(new RowError(lineNumber, message));
+        }
+    }
+
+    /**
+     * True if more errors occurred than are listed in {@link #getErrors()}.
+     */
+    public boolean isErrorsTruncated() {
+        return rejectedRows > errors.size();
+    }
+
+    /**
+     * Validation error of a single input line.
+     */
+    @Value
+    public static class RowError {
+        int lineNumber;
+        String message;
+    }
+}
@@ -0,0 +1,78 @@
+package com.ecotrack.service;
+
+import com.ecotrack.repository.JobLockRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+/**
+ * Runs scheduled jobs over shared data (archival, summary reconcile, outbox sweep, change log purge) on one node
+ * at a time, through leases in the {@code job_locks} table. Every node schedules the job; the one that takes the
+ * lease runs it and the others skip that run. A lease lasts at most {@code atMost}, so the job of a node that
+ * died is picked up again once it expires, and at least {@code atLeast}, so nodes whose schedules fire a little
+ * apart do not each run it. Leases compare the nodes' clocks, which must agree to well within {@code atLeast}.
+ * <p>
+ * Jobs refreshing a node's own memory (leaderboard reseed, rules reload, change log poll) run on every node.
+ */
+@Service
+public class JobLockService {
+
+    /**
+     * Lease bounds of nightly jobs: they finish within hours, and their schedules fire on every node within minutes.
+     */
+    public static final Duration NIGHTLY_AT_MOST = Duration.ofHours(6);
+    public static final Duration NIGHTLY_AT_LEAST = Duration.ofMinutes(10);
+
+    private static final Logger log = LoggerFactory.getLogger(JobLockService.class);
+
+    private final JobLockRepository jobLockRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    @Autowired
+    public JobLockService(JobLockRepository jobLockRepository, PlatformTransactionManager transactionManager) {
+        this.jobLockRepository = jobLockRepository;
+        // each lease statement commits at once, whatever the caller runs in
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Run a job unless another node holds its lease.
+     *
+     * @param name identifies the job across nodes
+     * @param atMost longest the job may run before another node may start it
+     * @param atLeast shortest time the lease is held, even when the job finishes sooner
+     * @param job the job
+     * @return whether this node ran the job
+     */
+    public boolean runExclusively(String name, Duration atMost, Duration atLeast, Runnable job) {
+        // whole milliseconds, which every column stores exactly, so that no rounding moves a lease end
+        Instant start = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        Integer acquired = transactionTemplate.execute(status -> {
+            jobLockRepository.createIfMissing(name, start);
+            return jobLockRepository.acquire(name, nodeId, start, start.plus(atMost));
+        });
+        if (acquired == null || acquired == 0) {
+            log.debug("Skipping job {}: another node holds its lease", name);
+            return false;
+        }
+        try {
+            job.run();
+        } finally {
+            Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+            Instant until = start.plus(atLeast).isAfter(now) ? start.plus(atLeast) : now;
+            transactionTemplate.executeWithoutResult(status -> jobLockRepository.release(name, nodeId, until));
+        }
+        return true;
+    }
+}
@@ -0,0 +1,19 @@
+package com.ecotrack.service;
+
+import lombok.Value;
+
+/**
+ * Position of a user on the global leaderboard.
+ */
+@Value
+public class LeaderboardEntry {
+
+    /**
+     * 1-based rank; ties on points are broken by user id.
+     */
+    int rank;
+
+    Long userId;
+
+    long points;
+}
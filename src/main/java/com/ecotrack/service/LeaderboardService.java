@@ -0,0 +1,233 @@
+package com.ecotrack.service;
+
+import com.ecotrack.model.UserPointsSummary;
+import com.ecotrack.repository.EcoActionArchiveRepository;
+import com.ecotrack.repository.EcoActionRepository;
+import com.ecotrack.repository.UserPoints;
+import com.ecotrack.repository.UserPointsSummaryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Global leaderboard of users by total points, kept in memory.
+ * Seeded from aggregate queries over the actions and their archive at startup (and re-seeded nightly), then
+ * updated incrementally from {@link PointsChangedEvent}s after each commit, and from {@link ClusterChangeEvent}s for
+ * changes made on other nodes of a cluster. Rank lookups are O(log n) on a {@link RankTree}; the top
+ * entries are republished as an immutable snapshot on every write so that reading them takes no lock.
+ */
+@Service
+public class LeaderboardService {
+
+    private static final Logger log = LoggerFactory.getLogger(LeaderboardService.class);
+
+    private final EcoActionRepository ecoActionRepository;
+    private final EcoActionArchiveRepository archiveRepository;
+    private final UserPointsSummaryRepository summaryRepository;
+    private final int topSize;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // guarded by lock
+    private final Map<Long, Long> pointsByUser = new HashMap<>();
+    // guarded by lock
+    private final RankTree rankTree = new RankTree();
+    // guarded by lock; deltas applied while a reload computes new totals, null when no reload runs
+    private Map<Long, Long> reloadDeltas;
+    private volatile List<LeaderboardEntry> topSnapshot = List.of();
+
+    @Autowired
+    public LeaderboardService(EcoActionRepository ecoActionRepository,
+                              EcoActionArchiveRepository archiveRepository,
+                              UserPointsSummaryRepository summaryRepository,
+                              @Value("${ecotrack.leaderboard.top-size:100}") int topSize) {
+        this.ecoActionRepository = ecoActionRepository;
+        this.archiveRepository = archiveRepository;
+        this.summaryRepository = summaryRepository;
+        this.topSize = topSize;
+    }
+
+    /**
+     * Rebuild the leaderboard from the database. Runs in a read-write transaction so that it reads the primary
+     * rather than a replica that may not have the latest changes yet. Changes applied while the totals are
+     * being computed are not in them: they are recorded and replayed onto the new totals when these are
+     * swapped in.
+     */
+    @Transactional
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${ecotrack.leaderboard.reseed-cron:0 30 3 * * *}")
+    public void reload() {
+        lock.writeLock().lock();
+        try {
+            reloadDeltas = new HashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        Map<Long, Long> totals = new HashMap<>();
+        try {
+            for (UserPoints row : ecoActionRepository.sumPointsGroupByUser()) {
+                totals.merge(row.getUserId(), row.getPoints(), Long::sum);
+            }
+            for (UserPoints row : archiveRepository.sumPointsGroupByUser()) {
+                totals.merge(row.getUserId(), row.getPoints(), Long::sum);
+            }
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                reloadDeltas = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+        int replayed;
+        lock.writeLock().lock();
+        try {
+            pointsByUser.clear();
+            rankTree.clear();
+            totals.forEach((userId, points) -> {
+                pointsByUser.put(userId, points);
+                rankTree.insert(userId, points);
+            });
+            Map<Long, Long> deltas = reloadDeltas;
+            reloadDeltas = null;
+            deltas.forEach(this::move);
+            replayed = deltas.size();
+            publishTop();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Leaderboard seeded with {} users, {} changed during the reload", totals.size(), replayed);
+    }
+
+    /**
+     * Apply committed point changes.
+     */
+    @TransactionalEventListener
+    public void onPointsChanged(PointsChangedEvent event) {
+        adjust(event.getUserId(), event.getDelta());
+    }
+
+    /**
+     * Take over the total of a user whose points another node changed. The total is read from the primary
+     * rather than the delta added, so it is right whether or not the last seed already counted the change.
+     */
+    @Transactional
+    @EventListener(condition = "#event.type.name() == 'POINTS'")
+    public void onClusterChange(ClusterChangeEvent event) {
+        Long userId = event.getUserId();
+        long total = summaryRepository.findById(userId).map(UserPointsSummary::getTotalPoints).orElse(0L);
+        lock.writeLock().lock();
+        try {
+            Long previous = pointsByUser.get(userId);
+            adjust(userId, total - (previous == null ? 0 : previous));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Add a delta to a user's leaderboard points.
+     *
+     * @param userId the user
+     * @param delta points added (positive) or removed (negative)
+     */
+    public void adjust(Long userId, long delta) {
+        if (delta == 0) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (reloadDeltas != null) {
+                reloadDeltas.merge(userId, delta, Long::sum);
+            }
+            if (move(userId, delta)) {
+                publishTop();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Move a user in the tree by a delta. The caller holds the write lock.
+     *
+     * @return whether the top entries may have changed
+     */
+    private boolean move(Long userId, long delta) {
+        Long previous = pointsByUser.get(userId);
+        long points = (previous == null ? 0 : previous) + delta;
+        boolean inTop = previous != null && rankTree.countBefore(userId, previous) < topSize;
+        if (previous != null) {
+            rankTree.remove(userId, previous);
+        }
+        pointsByUser.put(userId, points);
+        rankTree.insert(userId, points);
+        return inTop || rankTree.countBefore(userId, points) < topSize;
+    }
+
+    /**
+     * Best ranked users. Reads the published snapshot without locking.
+     *
+     * @param limit maximum number of entries, capped at {@code ecotrack.leaderboard.top-size}
+     * @return entries in rank order
+     */
+    public List<LeaderboardEntry> getTop(int limit) {
+        List<LeaderboardEntry> snapshot = topSnapshot;
+        return snapshot.subList(0, Math.max(0, Math.min(limit, snapshot.size())));
+    }
+
+    /**
+     * Current rank of a user.
+     *
+     * @param userId the user
+     * @return the user's entry, empty if the user has never logged an action
+     */
+    public Optional<LeaderboardEntry> getRank(Long userId) {
+        lock.readLock().lock();
+        try {
+            Long points = pointsByUser.get(userId);
+            if (points == null) {
+                return Optional.empty();
+            }
+            return Optional.of(new LeaderboardEntry(rankTree.countBefore(userId, points) + 1, userId, points));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of ranked users.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return rankTree.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // caller holds the write lock
+    private void publishTop() {
+        List<long[]> top = rankTree.top(topSize);
+        List<LeaderboardEntry> entries = new ArrayList<>(top.size());
+        for (int i = 0; i < top.size(); i++) {
+            entries.add(new LeaderboardEntry(i + 1, top.get(i)[0], top.get(i)[1]));
+        }
+        topSnapshot = List.copyOf(entries);
+    }
+}
@@ -0,0 +1,23 @@
+package com.ecotrack.service;
+
+import com.ecotrack.model.EcoAction;
+import lombok.Value;
+
+/**
+ * An action accepted by {@link ActionIngestQueue} that has not been written to the database yet.
+ */
+@Value
+class PendingAction {
+
+    /**
+     * Position in acceptance order; increases monotonically, also across restarts of the journal.
+     */
+    long seq;
+
+    Long userId;
+
+    /**
+     * The action without user or id.
+     */
+    EcoAction action;
+}
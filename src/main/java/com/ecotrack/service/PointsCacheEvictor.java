@@ -0,0 +1,53 @@
+package com.ecotrack.service;
+
+import com.ecotrack.enums.TimeGranularity;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Evicts a user's cached aggregates once a change of their points has committed, so a concurrent reader
+ * cannot re-cache the values of the uncommitted transaction. Changes committed by other nodes of the cluster
+ * arrive as {@link ClusterChangeEvent}s.
+ */
+@Component
+public class PointsCacheEvictor {
+
+    private final CacheManager cacheManager;
+
+    @Autowired
+    public PointsCacheEvictor(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    @TransactionalEventListener
+    public void onPointsChanged(PointsChangedEvent event) {
+        evict(event.getUserId());
+    }
+
+    @EventListener(condition = "#event.type.name() == 'POINTS'")
+    public void onClusterChange(ClusterChangeEvent event) {
+        evict(event.getUserId());
+    }
+
+    /**
+     * Evict every cached aggregate of a user.
+     *
+     * @param userId the user
+     */
+    public void evict(Long userId) {
+        Cache totalPoints = cacheManager.getCache("totalPoints");
+        if (totalPoints != null) {
+            totalPoints.evict(userId);
+        }
+        Cache pointsSeries = cacheManager.getCache("pointsSeries");
+        if (pointsSeries != null) {
+            for (TimeGranularity granularity : TimeGranularity.values()) {
+                pointsSeries.evict(EcoActionService.seriesCacheKey(userId, granularity));
+            }
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.ecotrack.service;
+
+import lombok.Value;
+
+import java.time.LocalDate;
+
+/**
+ * Published by {@link PointsSummaryService} whenever a user's points change. Listeners that keep derived
+ * state in memory should consume it after commit (see {@code @TransactionalEventListener}).
+ */
+@Value
+public class PointsChangedEvent {
+
+    Long userId;
+
+    /**
+     * Date of the action(s) whose points changed; identifies the affected ISO week.
+     */
+    LocalDate date;
+
+    /**
+     * Points added (positive) or removed (negative).
+     */
+    long delta;
+}
@@ -0,0 +1,292 @@
+package com.ecotrack.service;
+
+import com.ecotrack.enums.ActionType;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Gamification rules compiled into lookup tables: base points indexed by action type, the multipliers that
+ * can apply to each type, and sorted streak and level thresholds searched by bisection. Immutable, so a
+ * reload swaps the whole instance and evaluations in flight keep the rules they started with.
+ * <p>
+ * Compiled from properties of the form
+ * <pre>
+ * points.default=5                       base points of types not listed
+ * points.CYCLING=10                      base points of a type
+ * multiplier.weekend.factor=1.5          multiplier of matching actions; every match applies
+ * multiplier.weekend.days=SATURDAY,SUNDAY  optional filters: types, days, from, to (inclusive dates)
+ * streak.7=15                            bonus for the first action of a day ending a run of at least 7 days
+ * level.Gold=100                         level reached at 100 total points; one level must start at 0
+ * </pre>
+ */
+public final class PointsRules {
+
+    private static final ActionType[] TYPES = ActionType.values();
+    private static final Multiplier[] NO_MULTIPLIERS = new Multiplier[0];
+
+    private final long version;
+    private final int[] basePoints;
+    private final Multiplier[][] multipliersByType;
+    private final int[] streakDays;
+    private final int[] streakBonus;
+    private final long[] levelThresholds;
+    private final String[] levelLabels;
+
+    private PointsRules(long version, int[] basePoints, Multiplier[][] multipliersByType,
+                        int[] streakDays, int[] streakBonus, long[] levelThresholds, String[] levelLabels) {
+        this.version = version;
+        this.basePoints = basePoints;
+        this.multipliersByType = multipliersByType;
+        this.streakDays = streakDays;
+        this.streakBonus = streakBonus;
+        this.levelThresholds = levelThresholds;
+        this.levelLabels = levelLabels;
+    }
+
+    /**
+     * Compile rules from their properties.
+     *
+     * @param properties the rule definitions
+     * @param version identifies these rules, for example a checksum of their source
+     * @return compiled rules
+     * @throws IllegalArgumentException describing the first invalid or unknown property
+     */
+    public static PointsRules compile(Properties properties, long version) {
+        int defaultPoints = 0;
+        Map<ActionType, Integer> points = new TreeMap<>();
+        Map<String, Map<String, String>> multipliers = new TreeMap<>();
+        TreeMap<Integer, Integer> streaks = new TreeMap<>();
+        TreeMap<Long, String> levels = new TreeMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            String value = properties.getProperty(key).trim();
+            String[] parts = key.split("\\.", 3);
+            if (parts.length == 2 && parts[0].equals("points")) {
+                int base = nonNegative(key, value);
+                if (parts[1].equals("default")) {
+                    defaultPoints = base;
+                } else {
+                    points.put(actionType(key, parts[1]), base);
+                }
+            } else if (parts.length == 3 && parts[0].equals("multiplier")) {
+                multipliers.computeIfAbsent(parts[1], name -> new TreeMap<>()).put(parts[2], value);
+            } else if (parts.length == 2 && parts[0].equals("streak")) {
+                int days = nonNegative(key, parts[1]);
+                if (days < 2) {
+                    throw new IllegalArgumentException(key + ": a streak is at least 2 days");
+                }
+                streaks.put(days, nonNegative(key, value));
+            } else if (parts.length == 2 && parts[0].equals("level")) {
+                long threshold = nonNegative(key, value);
+                String previous = levels.put(threshold, parts[1]);
+                if (previous != null) {
+                    throw new IllegalArgumentException(key + ": level " + previous + " starts at " + value + " too");
+                }
+            } else {
+                throw new IllegalArgumentException("Unknown rule " + key);
+            }
+        }
+        if (!levels.containsKey(0L)) {
+            throw new IllegalArgumentException("One level must start at 0 points");
+        }
+
+        int[] basePoints = new int[TYPES.length];
+        Arrays.fill(basePoints, defaultPoints);
+        points.forEach((type, base) -> basePoints[type.ordinal()] = base);
+
+        List<List<Multiplier>> byType = new ArrayList<>();
+        for (int i = 0; i < TYPES.length; i++) {
+            byType.add(new ArrayList<>());
+        }
+        multipliers.forEach((name, fields) -> {
+            Multiplier multiplier = multiplier("multiplier." + name, fields);
+            for (ActionType type : types("multiplier." + name + ".types", fields.get("types"))) {
+                byType.get(type.ordinal()).add(multiplier);
+            }
+        });
+        Multiplier[][] multipliersByType = new Multiplier[TYPES.length][];
+        for (int i = 0; i < TYPES.length; i++) {
+            multipliersByType[i] = byType.get(i).isEmpty() ? NO_MULTIPLIERS : byType.get(i).toArray(NO_MULTIPLIERS);
+        }
+
+        return new PointsRules(version, basePoints, multipliersByType,
+                streaks.keySet().stream().mapToInt(Integer::intValue).toArray(),
+                streaks.values().stream().mapToInt(Integer::intValue).toArray(),
+                levels.keySet().stream().mapToLong(Long::longValue).toArray(),
+                levels.values().toArray(new String[0]));
+    }
+
+    /**
+     * Points earned by an action.
+     *
+     * @param type action type
+     * @param date day of the action
+     * @param streak consecutive active days ending with the action's day if it is the user's first action that
+     *               day, otherwise 0
+     * @return base points times every matching multiplier, rounded, plus the streak bonus
+     */
+    public int points(ActionType type, LocalDate date, int streak) {
+        int ordinal = type.ordinal();
+        int base = basePoints[ordinal];
+        Multiplier[] multipliers = multipliersByType[ordinal];
+        if (multipliers.length > 0) {
+            int dayBit = 1 << date.getDayOfWeek().ordinal();
+            long epochDay = date.toEpochDay();
+            double factor = 1;
+            for (Multiplier multiplier : multipliers) {
+                if ((multiplier.dayMask & dayBit) != 0
+                        && epochDay >= multiplier.fromEpochDay && epochDay <= multiplier.toEpochDay) {
+                    factor *= multiplier.factor;
+                }
+            }
+            base = Math.toIntExact(Math.round(base * factor));
+        }
+        return base + streakBonus(streak);
+    }
+
+    /**
+     * Bonus of the longest streak threshold reached, 0 below the shortest.
+     */
+    public int streakBonus(int streak) {
+        int index = Arrays.binarySearch(streakDays, streak);
+        if (index < 0) {
+            index = -index - 2;
+        }
+        return index < 0 ? 0 : streakBonus[index];
+    }
+
+    /**
+     * Longest streak worth looking back for: no bonus grows beyond it.
+     */
+    public int maxStreak() {
+        return streakDays.length == 0 ? 0 : streakDays[streakDays.length - 1];
+    }
+
+    /**
+     * Level reached by a points total.
+     *
+     * @param totalPoints the user's total points
+     * @return label of the highest level whose threshold is reached
+     */
+    public String level(long totalPoints) {
+        int index = Arrays.binarySearch(levelThresholds, totalPoints);
+        if (index < 0) {
+            index = -index - 2;
+        }
+        return levelLabels[Math.max(index, 0)];
+    }
+
+    /**
+     * Base points of a type, before multipliers and bonuses.
+     */
+    public int basePoints(ActionType type) {
+        return basePoints[type.ordinal()];
+    }
+
+    /**
+     * Identifies these rules; changes whenever their source does.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    private static Multiplier multiplier(String name, Map<String, String> fields) {
+        for (String field : fields.keySet()) {
+            if (!List.of("factor", "types", "days", "from", "to").contains(field)) {
+                throw new IllegalArgumentException("Unknown rule " + name + "." + field);
+            }
+        }
+        String factor = fields.get("factor");
+        if (factor == null) {
+            throw new IllegalArgumentException(name + ".factor is required");
+        }
+        double value;
+        try {
+            value = Double.parseDouble(factor);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + ".factor: not a number: " + factor);
+        }
+        if (!(value > 0) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException(name + ".factor must be positive: " + factor);
+        }
+        int dayMask = 0x7f;
+        String days = fields.get("days");
+        if (days != null) {
+            dayMask = 0;
+            for (String day : days.split(",")) {
+                try {
+                    dayMask |= 1 << DayOfWeek.valueOf(day.trim().toUpperCase()).ordinal();
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException(name + ".days: unknown day " + day.trim());
+                }
+            }
+        }
+        long from = date(name + ".from", fields.get("from"), LocalDate.MIN);
+        long to = date(name + ".to", fields.get("to"), LocalDate.MAX);
+        return new Multiplier(value, dayMask, from, to);
+    }
+
+    private static List<ActionType> types(String key, String value) {
+        if (value == null) {
+            return List.of(TYPES);
+        }
+        List<ActionType> types = new ArrayList<>();
+        for (String type : value.split(",")) {
+            types.add(actionType(key, type.trim()));
+        }
+        return types;
+    }
+
+    private static ActionType actionType(String key, String name) {
+        try {
+            return ActionType.valueOf(name.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(key + ": unknown action type " + name);
+        }
+    }
+
+    private static long date(String key, String value, LocalDate unbounded) {
+        if (value == null) {
+            return unbounded.toEpochDay();
+        }
+        try {
+            return LocalDate.parse(value.trim()).toEpochDay();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(key + ": invalid date (expected yyyy-MM-dd): " + value);
+        }
+    }
+
+    private static int nonNegative(String key, String value) {
+        try {
+            int number = Integer.parseInt(value);
+            if (number >= 0) {
+                return number;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException(key + ": expected a whole number of at least 0: " + value);
+    }
+
+    private static final class Multiplier {
+
+        private final double factor;
+        private final int dayMask;
+        private final long fromEpochDay;
+        private final long toEpochDay;
+
+        private Multiplier(double factor, int dayMask, long fromEpochDay, long toEpochDay) {
+            this.factor = factor;
+            this.dayMask = dayMask;
+            this.fromEpochDay = fromEpochDay;
+            this.toEpochDay = toEpochDay;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.ecotrack.service;
+
+import com.ecotrack.enums.ActionType;
+import com.ecotrack.model.EcoAction;
+import com.ecotrack.repository.EcoActionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Scores actions with the gamification {@link PointsRules} and reports levels. Points are evaluated once, when
+ * an action is written, and stored with it; totals, series and caches then only ever add stored points, so
+ * the rules' complexity never reaches a dashboard read. A level is a bisection over the compiled thresholds.
+ * <p>
+ * The rules are read from {@code ecotrack.rules.location} and re-read every {@code reload-interval-ms}; a
+ * changed file is compiled and swapped in without a restart. New rules apply to actions written from then on,
+ * existing actions keep their points. A file that does not compile is logged and the previous rules stay.
+ */
+@Service
+public class PointsRulesService {
+
+    private static final Logger log = LoggerFactory.getLogger(PointsRulesService.class);
+
+    private final Resource location;
+    private final EcoActionRepository ecoActionRepository;
+    private final ActionIngestQueue actionIngestQueue;
+    private volatile PointsRules rules;
+    private long rejectedVersion = -1;
+
+    @Autowired
+    public PointsRulesService(ResourceLoader resourceLoader,
+                              EcoActionRepository ecoActionRepository,
+                              ActionIngestQueue actionIngestQueue,
+                              @Value("${ecotrack.rules.location:classpath:gamification-rules.properties}")
+                              String location) throws IOException {
+        this.location = resourceLoader.getResource(location);
+        this.ecoActionRepository = ecoActionRepository;
+        this.actionIngestQueue = actionIngestQueue;
+        // invalid rules fail the start rather than scoring with nothing
+        this.rules = load(readLocation());
+        log.info("Loaded gamification rules {} from {}", Long.toHexString(rules.getVersion()), location);
+    }
+
+    /**
+     * Rules in effect.
+     */
+    public PointsRules current() {
+        return rules;
+    }
+
+    /**
+     * Level reached by a points total under the rules in effect.
+     */
+    public String level(long totalPoints) {
+        return rules.level(totalPoints);
+    }
+
+    /**
+     * Set the points of new actions of a user, in order. A streak bonus goes to the first action of a day
+     * that is neither written nor pending yet, so it is earned once per day.
+     *
+     * @param userId the owner
+     * @param actions actions about to be written
+     */
+    @Transactional(readOnly = true)
+    public void score(Long userId, List<EcoAction> actions) {
+        score(userId, actions, null);
+    }
+
+    /**
+     * Points of an existing action after a change of its type or date, as if it were logged anew.
+     *
+     * @param userId the owner
+     * @param id the action being changed
+     * @param actionType new type
+     * @param date new date
+     * @return points to store
+     */
+    @Transactional(readOnly = true)
+    public int rescore(Long userId, Long id, ActionType actionType, LocalDate date) {
+        EcoAction action = EcoAction.builder().actionType(actionType).date(date).build();
+        score(userId, List.of(action), id);
+        return action.getPoints();
+    }
+
+    /**
+     * Re-read the rules and swap them in if they changed.
+     */
+    @Scheduled(fixedDelayString = "${ecotrack.rules.reload-interval-ms:10000}")
+    public void reload() {
+        byte[] source;
+        try {
+            source = readLocation();
+        } catch (IOException e) {
+            log.warn("Could not read gamification rules from {}: {}", location, e.getMessage());
+            return;
+        }
+        long version = checksum(source);
+        if (version == rules.getVersion() || version == rejectedVersion) {
+            return;
+        }
+        try {
+            rules = load(source);
+            log.info("Reloaded gamification rules {} from {}", Long.toHexString(rules.getVersion()), location);
+        } catch (IllegalArgumentException | IOException e) {
+            // reported once per version of the file
+            rejectedVersion = version;
+            log.warn("Keeping gamification rules {}: {} is invalid: {}", Long.toHexString(rules.getVersion()),
+                    location, e.getMessage());
+        }
+    }
+
+    private void score(Long userId, List<EcoAction> actions, Long excludeId) {
+        if (actions.isEmpty()) {
+            return;
+        }
+        PointsRules current = rules;
+        int lookback = Math.max(current.maxStreak() - 1, 0);
+        LocalDate from = actions.get(0).getDate();
+        LocalDate to = from;
+        for (EcoAction action : actions) {
+            from = action.getDate().isBefore(from) ? action.getDate() : from;
+            to = action.getDate().isAfter(to) ? action.getDate() : to;
+        }
+        Set<LocalDate> activeDays = new HashSet<>(
+                ecoActionRepository.findActiveDates(userId, from.minusDays(lookback), to, excludeId));
+        for (EcoAction pending : actionIngestQueue.pending(userId)) {
+            activeDays.add(pending.getDate());
+        }
+        for (EcoAction action : actions) {
+            LocalDate date = action.getDate();
+            int streak = 0;
+            if (activeDays.add(date)) {
+                streak = 1;
+                while (streak <= lookback && activeDays.contains(date.minusDays(streak))) {
+                    streak++;
+                }
+            }
+            action.setPoints(current.points(action.getActionType(), date, streak));
+        }
+    }
+
+    private byte[] readLocation() throws IOException {
+        try (InputStream in = location.getInputStream()) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static PointsRules load(byte[] source) throws IOException {
+        Properties properties = new Properties();
+        properties.load(new InputStreamReader(new ByteArrayInputStream(source), StandardCharsets.UTF_8));
+        return PointsRules.compile(properties, checksum(source));
+    }
+
+    private static long checksum(byte[] source) {
+        CRC32 crc = new CRC32();
+        crc.update(source);
+        return crc.getValue();
+    }
+}
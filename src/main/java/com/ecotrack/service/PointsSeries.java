@@ -0,0 +1,64 @@
+package com.ecotrack.service;
+
+import com.ecotrack.enums.TimeGranularity;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Chronological points series for a chart: parallel arrays of bucket keys and point sums.
+ * Instances are immutable and may be cached; the arrays returned by the getters must not be modified.
+ * Labels are formatted on first use only, once per bucket.
+ */
+public final class PointsSeries {
+
+    private final TimeGranularity granularity;
+    private final int[] keys;
+    private final int[] values;
+    private volatile List<String> labels;
+
+    PointsSeries(TimeGranularity granularity, int[] keys, int[] values) {
+        this.granularity = granularity;
+        this.keys = keys;
+        this.values = values;
+    }
+
+    public TimeGranularity getGranularity() {
+        return granularity;
+    }
+
+    /**
+     * Bucket keys in ascending order, see {@link TimeGranularity#key}.
+     */
+    public int[] getKeys() {
+        return keys;
+    }
+
+    /**
+     * Points per bucket, aligned with {@link #getKeys()}.
+     */
+    public int[] getValues() {
+        return values;
+    }
+
+    /**
+     * Bucket labels aligned with {@link #getValues()}.
+     */
+    public List<String> getLabels() {
+        List<String> result = labels;
+        if (result == null) {
+            List<String> formatted = new ArrayList<>(keys.length);
+            for (int key : keys) {
+                formatted.add(granularity.label(key));
+            }
+            result = Collections.unmodifiableList(formatted);
+            labels = result;
+        }
+        return result;
+    }
+
+    public int size() {
+        return keys.length;
+    }
+}
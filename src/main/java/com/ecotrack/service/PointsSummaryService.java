@@ -0,0 +1,304 @@
+package com.ecotrack.service;
+
+import com.ecotrack.model.EcoAction;
+import com.ecotrack.model.UserPointsSummary;
+import com.ecotrack.model.UserWeeklyPoints;
+import com.ecotrack.repository.DailyPoints;
+import com.ecotrack.repository.EcoActionArchiveRepository;
+import com.ecotrack.repository.EcoActionRepository;
+import com.ecotrack.repository.UserPointsSummaryRepository;
+import com.ecotrack.repository.UserRepository;
+import com.ecotrack.repository.UserWeeklyPointsRepository;
+import com.ecotrack.repository.WeeklyPoints;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.WeekFields;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Maintains the per-user points summary (running total and ISO week buckets) so that the dashboard
+ * reads a handful of rows instead of scanning the user's action history.
+ * Writers apply point deltas in the same transaction as the action change; a nightly reconcile job
+ * rebuilds every summary from the raw and archived actions to repair any drift.
+ */
+@Service
+public class PointsSummaryService {
+
+    private static final Logger log = LoggerFactory.getLogger(PointsSummaryService.class);
+
+    private final UserPointsSummaryRepository summaryRepository;
+    private final UserWeeklyPointsRepository weeklyPointsRepository;
+    private final EcoActionRepository ecoActionRepository;
+    private final EcoActionArchiveRepository archiveRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final JobLockService jobLockService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    public PointsSummaryService(UserPointsSummaryRepository summaryRepository,
+                                UserWeeklyPointsRepository weeklyPointsRepository,
+                                EcoActionRepository ecoActionRepository,
+                                EcoActionArchiveRepository archiveRepository,
+                                UserRepository userRepository,
+                                PlatformTransactionManager transactionManager,
+                                JobLockService jobLockService,
+                                ApplicationEventPublisher eventPublisher) {
+        this.summaryRepository = summaryRepository;
+        this.weeklyPointsRepository = weeklyPointsRepository;
+        this.ecoActionRepository = ecoActionRepository;
+        this.archiveRepository = archiveRepository;
+        this.userRepository = userRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jobLockService = jobLockService;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Create the empty summary of a user who has no actions yet, so that their writes only ever apply deltas.
+     * Does nothing if the summary exists.
+     *
+     * @param userId the new user
+     */
+    @Transactional
+    public void createSummary(Long userId) {
+        summaryRepository.createIfMissing(userId, Instant.now());
+    }
+
+    /**
+     * Apply a points delta for an action dated on the given day. Must be called after the action change
+     * itself so that a first-time rebuild already sees it. Publishes a {@link PointsChangedEvent}.
+     *
+     * @param userId owner of the action
+     * @param date date of the action
+     * @param delta points added (positive) or removed (negative)
+     */
+    @Transactional
+    public void applyDelta(Long userId, LocalDate date, long delta) {
+        applyDeltas(userId, Map.of(date, delta));
+    }
+
+    /**
+     * Apply the points of a batch of newly inserted actions, with one delta per distinct ISO week.
+     *
+     * @param userId owner of the actions
+     * @param actions inserted actions
+     */
+    @Transactional
+    public void applyBatch(Long userId, Collection<EcoAction> actions) {
+        Map<LocalDate, Long> pointsByWeekStart = new HashMap<>();
+        for (EcoAction action : actions) {
+            pointsByWeekStart.merge(action.getDate().with(DayOfWeek.MONDAY), (long) action.getPoints(), Long::sum);
+        }
+        applyDeltas(userId, pointsByWeekStart);
+    }
+
+    /**
+     * Apply the change of an edited action, moving its points between weeks if the date changed.
+     *
+     * @param userId owner of the action
+     * @param oldDate date before the edit
+     * @param oldPoints points before the edit
+     * @param newDate date after the edit
+     * @param newPoints points after the edit
+     */
+    @Transactional
+    public void applyChange(Long userId, LocalDate oldDate, int oldPoints, LocalDate newDate, int newPoints) {
+        if (weekYear(oldDate) == weekYear(newDate) && week(oldDate) == week(newDate)) {
+            applyDelta(userId, newDate, (long) newPoints - oldPoints);
+        } else {
+            Map<LocalDate, Long> deltas = new HashMap<>();
+            deltas.put(oldDate, (long) -oldPoints);
+            deltas.put(newDate, (long) newPoints);
+            applyDeltas(userId, deltas);
+        }
+    }
+
+    /**
+     * Apply the deltas of one write, each dated on a day of a different ISO week. A user without a summary
+     * (data logged before summaries existed) gets it rebuilt instead: the rebuild already counts this write,
+     * so no delta is added on top. Publishes one {@link PointsChangedEvent} per delta.
+     */
+    private void applyDeltas(Long userId, Map<LocalDate, Long> deltasByDate) {
+        long total = deltasByDate.values().stream().mapToLong(Long::longValue).sum();
+        Instant now = Instant.now();
+        boolean added = summaryRepository.addPoints(userId, total, now) > 0;
+        if (!added && summaryRepository.createIfMissing(userId, now) > 0) {
+            // the events below carry this write; the older actions were already counted where they are derived
+            replaceWeeks(summaryRepository.lock(userId));
+        } else {
+            if (!added) {
+                // a concurrent first write created the summary; it did not count this write's uncommitted actions
+                summaryRepository.addPoints(userId, total, now);
+            }
+            deltasByDate.forEach((date, delta) ->
+                    weeklyPointsRepository.addPoints(userId, weekYear(date), week(date), delta));
+        }
+        deltasByDate.forEach((date, delta) -> eventPublisher.publishEvent(new PointsChangedEvent(userId, date, delta)));
+    }
+
+    /**
+     * Running points total of a user. Never writes, so it can run on a read replica; a user without a
+     * summary yet gets it computed from its actions and stored by the next write or reconcile.
+     *
+     * @param userId the owner
+     * @return total points
+     */
+    @Transactional(readOnly = true)
+    public long getTotalPoints(Long userId) {
+        return summaryRepository.findById(userId)
+                .map(UserPointsSummary::getTotalPoints)
+                .orElseGet(() -> ecoActionRepository.sumPointsByUserId(userId)
+                        + archiveRepository.sumPointsByUserId(userId));
+    }
+
+    /**
+     * Non-empty weekly buckets of a user in chronological order. Never writes, like
+     * {@link #getTotalPoints(Long)}.
+     *
+     * @param userId the owner
+     * @return weekly buckets
+     */
+    @Transactional(readOnly = true)
+    public List<UserWeeklyPoints> getWeeklyPoints(Long userId) {
+        if (!summaryRepository.existsById(userId)) {
+            return computeWeeks(userId);
+        }
+        return weeklyPointsRepository.findNonEmptyByUserId(userId);
+    }
+
+    /**
+     * Stored summary of a user, carrying its data version; a single primary key lookup that never touches the
+     * actions.
+     *
+     * @param userId the owner
+     * @return the summary, empty until the user's first write or the next reconcile
+     */
+    @Transactional(readOnly = true)
+    public Optional<UserPointsSummary> findSummary(Long userId) {
+        return summaryRepository.findById(userId);
+    }
+
+    /**
+     * Points of a user within the ISO week of a date.
+     *
+     * @param userId the owner
+     * @param date any day of the week
+     * @return points of that week, zero if none
+     */
+    @Transactional(readOnly = true)
+    public long getWeekPoints(Long userId, LocalDate date) {
+        return weeklyPointsRepository.findByUserIdAndWeekYearAndWeek(userId, weekYear(date), week(date))
+                .map(UserWeeklyPoints::getPoints)
+                .orElse(0L);
+    }
+
+    /**
+     * Recompute a user's summary from the raw and archived actions, replacing whatever was stored.
+     * Holds the summary row for the whole rebuild, so writes to the user's points wait for it instead of
+     * being overwritten by totals computed before they committed. A changed total is published as a
+     * {@link PointsChangedEvent} dated today, so that cached aggregates and the leaderboard follow the repair.
+     * The data version is only bumped when the total changes, so the nightly reconcile does not invalidate
+     * every client's cached responses.
+     *
+     * @param userId the owner
+     * @return rebuilt summary
+     */
+    @Transactional
+    public UserPointsSummary rebuild(Long userId) {
+        summaryRepository.createIfMissing(userId, Instant.now());
+        UserPointsSummary summary = summaryRepository.lock(userId);
+        long previous = summary.getTotalPoints();
+        replaceWeeks(summary);
+        if (summary.getTotalPoints() != previous) {
+            eventPublisher.publishEvent(new PointsChangedEvent(userId, LocalDate.now(),
+                    summary.getTotalPoints() - previous));
+        }
+        return summary;
+    }
+
+    /**
+     * Replace the weekly buckets and total of a locked summary with those computed from the actions.
+     */
+    private void replaceWeeks(UserPointsSummary summary) {
+        Long userId = summary.getUserId();
+        List<UserWeeklyPoints> weeks = computeWeeks(userId);
+        weeklyPointsRepository.deleteByUserId(userId);
+        weeklyPointsRepository.flush();
+        weeklyPointsRepository.saveAll(weeks);
+        long total = weeks.stream().mapToLong(UserWeeklyPoints::getPoints).sum();
+        if (summary.getTotalPoints() != total) {
+            summary.setTotalPoints(total);
+            summary.setDataVersion(summary.getDataVersion() + 1);
+            summary.setUpdatedAt(Instant.now());
+        }
+    }
+
+    /**
+     * Fold a user's per-day sums and archived weeks into unsaved, non-empty weekly buckets in chronological
+     * order.
+     */
+    private List<UserWeeklyPoints> computeWeeks(Long userId) {
+        Map<Integer, Long> pointsByWeek = new TreeMap<>();
+        for (WeeklyPoints archived : archiveRepository.sumPointsByUserIdGroupByWeek(userId)) {
+            pointsByWeek.merge(archived.getWeekYear() * 100 + archived.getWeek(), archived.getPoints(), Long::sum);
+        }
+        for (DailyPoints day : ecoActionRepository.sumPointsByUserIdGroupByDate(userId)) {
+            int key = weekYear(day.getDate()) * 100 + week(day.getDate());
+            pointsByWeek.merge(key, day.getPoints(), Long::sum);
+        }
+        List<UserWeeklyPoints> weeks = new ArrayList<>(pointsByWeek.size());
+        pointsByWeek.forEach((key, points) -> {
+            if (points != 0) {
+                weeks.add(UserWeeklyPoints.builder()
+                        .userId(userId)
+                        .weekYear(key / 100)
+                        .week(key % 100)
+                        .points(points)
+                        .build());
+            }
+        });
+        return weeks;
+    }
+
+    /**
+     * Reconcile job: rebuild every user's summary, one transaction per user. Runs on one node of a cluster at a
+     * time.
+     */
+    @Scheduled(cron = "${ecotrack.summary.reconcile-cron:0 0 3 * * *}")
+    public void rebuildAll() {
+        jobLockService.runExclusively("summary-reconcile", JobLockService.NIGHTLY_AT_MOST,
+                JobLockService.NIGHTLY_AT_LEAST, () -> {
+                    List<Long> userIds = userRepository.findAllIds();
+                    for (Long userId : userIds) {
+                        transactionTemplate.executeWithoutResult(status -> rebuild(userId));
+                    }
+                    log.info("Rebuilt points summaries for {} users", userIds.size());
+                });
+    }
+
+    static int weekYear(LocalDate date) {
+        return date.get(WeekFields.ISO.weekBasedYear());
+    }
+
+    static int week(LocalDate date) {
+        return date.get(WeekFields.ISO.weekOfWeekBasedYear());
+    }
+}
@@ -0,0 +1,165 @@
+package com.ecotrack.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Order-statistic treap of (points, userId) entries ordered by points descending, then user id ascending.
+ * Every node stores the size of its subtree, so inserts, removals and rank lookups take O(log n) expected
+ * time. Not thread-safe; {@link LeaderboardService} guards it with a lock.
+ */
+final class RankTree {
+
+    private static final class Node {
+        final long points;
+        final long userId;
+        final int priority;
+        Node left;
+        Node right;
+        int size = 1;
+
+        Node(long points, long userId, int priority) {
+            this.points = points;
+            this.userId = userId;
+            this.priority = priority;
+        }
+    }
+
+    private final SplittableRandom random = new SplittableRandom();
+    private Node root;
+
+    int size() {
+        return size(root);
+    }
+
+    void clear() {
+        root = null;
+    }
+
+    /**
+     * Insert an entry; the caller guarantees the user has no other entry in the tree.
+     */
+    void insert(long userId, long points) {
+        Node[] parts = split(root, points, userId);
+        root = merge(merge(parts[0], new Node(points, userId, random.nextInt())), parts[1]);
+    }
+
+    /**
+     * Remove the entry of a user holding exactly the given points.
+     */
+    void remove(long userId, long points) {
+        root = remove(root, points, userId);
+    }
+
+    /**
+     * Number of entries ranked strictly before the given entry.
+     */
+    int countBefore(long userId, long points) {
+        int count = 0;
+        Node node = root;
+        while (node != null) {
+            if (compare(node.points, node.userId, points, userId) < 0) {
+                count += size(node.left) + 1;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * The first entries in rank order as {userId, points} pairs.
+     *
+     * @param limit maximum number of entries
+     */
+    List<long[]> top(int limit) {
+        List<long[]> result = new ArrayList<>(Math.min(limit, size()));
+        Deque<Node> stack = new ArrayDeque<>();
+        Node node = root;
+        while ((node != null || !stack.isEmpty()) && result.size() < limit) {
+            while (node != null) {
+                stack.push(node);
+                node = node.left;
+            }
+            node = stack.pop();
+            result.add(new long[]{node.userId, node.points});
+            node = node.right;
+        }
+        return result;
+    }
+
+    private static int compare(long pointsA, long userIdA, long pointsB, long userIdB) {
+        if (pointsA != pointsB) {
+            return pointsA > pointsB ? -1 : 1;
+        }
+        return Long.compare(userIdA, userIdB);
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static void update(Node node) {
+        node.size = size(node.left) + size(node.right) + 1;
+    }
+
+    /**
+     * Split into entries ranked before the key and entries ranked at or after it.
+     */
+    private static Node[] split(Node node, long points, long userId) {
+        if (node == null) {
+            return new Node[2];
+        }
+        if (compare(node.points, node.userId, points, userId) < 0) {
+            Node[] parts = split(node.right, points, userId);
+            node.right = parts[0];
+            update(node);
+            return new Node[]{node, parts[1]};
+        }
+        Node[] parts = split(node.left, points, userId);
+        node.left = parts[1];
+        update(node);
+        return new Node[]{parts[0], node};
+    }
+
+    /**
+     * Merge two treaps where every entry of the first ranks before every entry of the second.
+     */
+    private static Node merge(Node first, Node second) {
+        if (first == null) {
+            return second;
+        }
+        if (second == null) {
+            return first;
+        }
+        if (first.priority > second.priority) {
+            first.right = merge(first.right, second);
+            update(first);
+            return first;
+        }
+        second.left = merge(first, second.left);
+        update(second);
+        return second;
+    }
+
+    private static Node remove(Node node, long points, long userId) {
+        if (node == null) {
+            return null;
+        }
+        int c = compare(points, userId, node.points, node.userId);
+        if (c == 0) {
+            return merge(node.left, node.right);
+        }
+        if (c < 0) {
+            node.left = remove(node.left, points, userId);
+        } else {
+            node.right = remove(node.right, points, userId);
+        }
+        update(node);
+        return node;
+    }
+}
@@ -0,0 +1,111 @@
+package com.ecotrack.service;
+
+import com.ecotrack.enums.TimeGranularity;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Sums points into time buckets without boxing: an open-addressing int-to-int hash map keyed by the packed
+ * bucket keys of a {@link TimeGranularity}. Not thread-safe; use one instance per aggregation.
+ */
+public final class TimeBucketAggregator {
+
+    private static final int EMPTY = Integer.MIN_VALUE;
+
+    private final TimeGranularity granularity;
+    private int[] keys;
+    private int[] values;
+    private int size;
+
+    public TimeBucketAggregator(TimeGranularity granularity) {
+        this(granularity, 16);
+    }
+
+    /**
+     * @param granularity bucket size
+     * @param expectedBuckets expected number of distinct buckets, used to size the table
+     */
+    public TimeBucketAggregator(TimeGranularity granularity, int expectedBuckets) {
+        this.granularity = granularity;
+        int capacity = Integer.highestOneBit(Math.max(4, expectedBuckets) * 2 - 1) << 1;
+        this.keys = new int[capacity];
+        this.values = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /**
+     * Add points to the bucket containing a date.
+     */
+    public void add(LocalDate date, int points) {
+        addKey(granularity.key(date), points);
+    }
+
+    /**
+     * Add points to a bucket by its key.
+     */
+    public void addKey(int key, int points) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                values[slot] += points;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = points;
+        if (++size * 2 > keys.length) {
+            resize();
+        }
+    }
+
+    /**
+     * Build the chronological series of the non-empty buckets.
+     */
+    public PointsSeries toSeries() {
+        int[] sortedKeys = new int[size];
+        int n = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY && values[i] != 0) {
+                sortedKeys[n++] = keys[i];
+            }
+        }
+        sortedKeys = Arrays.copyOf(sortedKeys, n);
+        Arrays.sort(sortedKeys);
+        int[] sortedValues = new int[n];
+        for (int i = 0; i < n; i++) {
+            sortedValues[i] = get(sortedKeys[i]);
+        }
+        return new PointsSeries(granularity, sortedKeys, sortedValues);
+    }
+
+    private int get(int key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return values[slot];
+    }
+
+    private void resize() {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                addKey(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,18 @@
+package com.ecotrack.service;
+
+import lombok.Value;
+
+/**
+ * Published by {@link UserService} when a user registers or their account or profile changes, within the
+ * transaction making the change when there is one.
+ */
+@Value
+public class UserChangedEvent {
+
+    Long userId;
+
+    /**
+     * Email of the user, the key of cached user details.
+     */
+    String email;
+}
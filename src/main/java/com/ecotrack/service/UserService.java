@@ -1,96 +1,172 @@
 package com.ecotrack.service;
 
 import com.ecotrack.model.User;
+import com.ecotrack.repository.UserName;
 import com.ecotrack.repository.UserRepository;
+import com.ecotrack.security.UserPrincipal;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
 import java.util.Collection;
-import java.util.Optional;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Service class that encapsulates business logic related to application users.
- * Also implements Spring Security's UserDetailsService for authentication.
+ * Also implements Spring Security's UserDetailsService for authentication, and UserDetailsPasswordService
+ * so hashes created with an older BCrypt work factor are upgraded on login.
  */
 @Service
-public class UserService implements UserDetailsService {
+public class UserService implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final PointsSummaryService pointsSummaryService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder,
+                       PointsSummaryService pointsSummaryService, ApplicationEventPublisher eventPublisher) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.pointsSummaryService = pointsSummaryService;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
-     * Register a new user. Passwords are encoded and a default role is assigned.
+     * Register a new user. Passwords are encoded, a default role is assigned and an empty points summary is
+     * created with the user. Publishes a {@link UserChangedEvent}.
      *
      * @param user incoming user with raw password
      * @return saved user
      */
+    @CacheEvict(cacheNames = "userDetails", key = "#user.email")
     public User register(User user) {
         user.setPassword(passwordEncoder.encode(user.getPassword()));
+        user.setCreatedAt(Instant.now());
         if (user.getRoles() == null || user.getRoles().isEmpty()) {
             user.getRoles().add("ROLE_USER");
         }
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        // own transaction, after hashing; a user left without one gets it created by their first write
+        pointsSummaryService.createSummary(saved.getId());
+        eventPublisher.publishEvent(new UserChangedEvent(saved.getId(), saved.getEmail()));
+        return saved;
     }
 
     /**
      * Update an existing user's profile information (name, avatar). Email and password are not changed here.
+     * Callers holding the user's principal must refresh it afterwards. Publishes a {@link UserChangedEvent}.
      *
-     * @param user current user persisted in database
+     * @param userId id of the user to update
      * @param name new display name
      * @param avatar new avatar path or URL
      * @return updated user
      */
-    public User updateProfile(User user, String name, String avatar) {
+    @Transactional
+    @CacheEvict(cacheNames = "userDetails", key = "#result.email")
+    public User updateProfile(Long userId, String name, String avatar) {
+        User user = userRepository.findWithRolesById(userId).orElseThrow();
         user.setName(name);
         user.setAvatar(avatar);
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(saved.getId(), saved.getEmail()));
+        return saved;
     }
 
     /**
      * Spring Security callback used to fetch user details during authentication.
+     * The returned principal keeps the user id and profile so later requests need no user lookup.
      *
      * @param email the username (we use email as username)
      * @return UserDetails for Spring Security
      */
     @Override
     @Transactional(readOnly = true)
+    @Cacheable(cacheNames = "userDetails", key = "#email")
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new UsernameNotFoundException("No user found with email: " + email));
-        return new org.springframework.security.core.userdetails.User(
-                user.getEmail(),
-                user.getPassword(),
-                mapRolesToAuthorities(user.getRoles()));
+        return UserPrincipal.from(user);
     }
 
-    private Collection<? extends GrantedAuthority> mapRolesToAuthorities(Set<String> roles) {
-        return roles.stream()
-                .map(SimpleGrantedAuthority::new)
-                .collect(Collectors.toList());
+    /**
+     * Spring Security callback storing a re-hashed password after a successful login with an outdated hash.
+     *
+     * @param user the authenticated user
+     * @param newPassword password encoded with the current work factor
+     * @return user details carrying the new hash
+     */
+    @Override
+    @Transactional
+    @CacheEvict(cacheNames = "userDetails", key = "#user.username")
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        userRepository.updatePassword(user.getUsername(), newPassword);
+        UserPrincipal updated = user instanceof UserPrincipal principal
+                ? new UserPrincipal(principal.getId(), principal.getEmail(), newPassword, principal.getName(),
+                        principal.getAvatar(), principal.getAuthorities())
+                : UserPrincipal.from(userRepository.findByEmail(user.getUsername()).orElseThrow());
+        eventPublisher.publishEvent(new UserChangedEvent(updated.getId(), updated.getEmail()));
+        return updated;
+    }
+
+    /**
+     * Drop the cached details of a user changed on another node of the cluster.
+     */
+    @EventListener(condition = "#event.type.name() == 'USER'")
+    @CacheEvict(cacheNames = "userDetails", key = "#event.email")
+    public void onClusterChange(ClusterChangeEvent event) {
+        // evicted by the annotations
+    }
+
+    /**
+     * Return a reference to a user by id without querying the database, for use as an association target.
+     *
+     * @param userId id of an existing user
+     * @return lazy user reference
+     */
+    public User getReference(Long userId) {
+        return userRepository.getReferenceById(userId);
     }
 
     /**
-     * Find a user by email if present.
+     * Check whether an email address is already registered.
      *
-     * @param email email to search for
-     * @return Optional of user
+     * @param email email to check
+     * @return true if taken
      */
-    public Optional<User> findByEmail(String email) {
-        return userRepository.findByEmail(email);
+    @Transactional(readOnly = true)
+    public boolean isEmailTaken(String email) {
+        return userRepository.existsByEmail(email);
+    }
+
+    /**
+     * Display names of the given users, falling back to a generic label for users without a name.
+     *
+     * @param userIds user ids
+     * @return map of user id to display name
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, String> findDisplayNames(Collection<Long> userIds) {
+        Map<Long, String> names = new HashMap<>();
+        if (userIds.isEmpty()) {
+            return names;
+        }
+        for (UserName user : userRepository.findNamesByIdIn(userIds)) {
+            String name = user.getName();
+            names.put(user.getId(), name == null || name.isBlank() ? "User #" + user.getId() : name);
+        }
+        return names;
     }
 }
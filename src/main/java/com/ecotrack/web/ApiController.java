@@ -0,0 +1,209 @@
+package com.ecotrack.web;
+
+import com.ecotrack.enums.Achievement;
+import com.ecotrack.enums.ActionType;
+import com.ecotrack.enums.TimeGranularity;
+import com.ecotrack.model.EcoAction;
+import com.ecotrack.model.UserPointsSummary;
+import com.ecotrack.security.CurrentUser;
+import com.ecotrack.security.UserPrincipal;
+import com.ecotrack.service.ActionIngestQueue;
+import com.ecotrack.service.ActionPage;
+import com.ecotrack.service.ActivityService;
+import com.ecotrack.service.ActivitySummary;
+import com.ecotrack.service.EcoActionService;
+import com.ecotrack.service.PointsRules;
+import com.ecotrack.service.PointsRulesService;
+import com.ecotrack.service.PointsSeries;
+import com.ecotrack.service.PointsSummaryService;
+import lombok.Value;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Read-only JSON API over the current user's actions, points and chart series, for mobile clients and
+ * reporting scrapers.
+ * <p>
+ * Every response carries an {@code ETag} and {@code Last-Modified} derived from the user's data version in
+ * {@link UserPointsSummary}, which every write bumps. A conditional GET is answered with 304 after a single
+ * primary key lookup, before anything is read from {@code eco_actions}. The stamp is read before the data, so
+ * a write racing with a request can only make the next request miss, never serve stale data as current.
+ */
+@RestController
+@RequestMapping("/api/v1")
+public class ApiController {
+
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+
+    /**
+     * Responses are per user: browsers may keep them but must revalidate, shared caches must not store them.
+     */
+    private static final CacheControl CACHE_CONTROL = CacheControl.noCache().cachePrivate();
+
+    private final EcoActionService ecoActionService;
+    private final PointsSummaryService pointsSummaryService;
+    private final ActionIngestQueue actionIngestQueue;
+    private final PointsRulesService pointsRulesService;
+    private final ActivityService activityService;
+
+    @Autowired
+    public ApiController(EcoActionService ecoActionService, PointsSummaryService pointsSummaryService,
+                         ActionIngestQueue actionIngestQueue, PointsRulesService pointsRulesService,
+                         ActivityService activityService) {
+        this.ecoActionService = ecoActionService;
+        this.pointsSummaryService = pointsSummaryService;
+        this.actionIngestQueue = actionIngestQueue;
+        this.pointsRulesService = pointsRulesService;
+        this.activityService = activityService;
+    }
+
+    /**
+     * One page of the current user's actions, newest first. Actions not written yet have no id.
+     */
+    @GetMapping("/actions")
+    public ResponseEntity<ActionPageJson> actions(@CurrentUser UserPrincipal user,
+                                                  @RequestParam(value = "cursor", required = false) String cursor,
+                                                  @RequestParam(value = "size", defaultValue = "" + DEFAULT_PAGE_SIZE)
+                                                  int size,
+                                                  WebRequest request) {
+        // pending write-behind actions are listed but not yet counted in the data version
+        int pending = actionIngestQueue.pending(user.getId()).size();
+        if (notModified(user, request, pending == 0 ? "" : "p" + pending)) {
+            return notModifiedResponse();
+        }
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        ActionPage page = ecoActionService.findPage(user.getId(), cursor, pageSize);
+        List<ActionJson> items = page.getItems().stream().map(ActionJson::of).toList();
+        return ResponseEntity.ok().cacheControl(CACHE_CONTROL).body(new ActionPageJson(items, page.getNextCursor()));
+    }
+
+    /**
+     * Total points and level of the current user.
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<StatsJson> stats(@CurrentUser UserPrincipal user, WebRequest request) {
+        // the level also changes when new rules are loaded
+        PointsRules rules = pointsRulesService.current();
+        if (notModified(user, request, "r" + Long.toHexString(rules.getVersion()))) {
+            return notModifiedResponse();
+        }
+        int totalPoints = ecoActionService.computeTotalPoints(user.getId());
+        return ResponseEntity.ok().cacheControl(CACHE_CONTROL)
+                .body(new StatsJson(totalPoints, rules.level(totalPoints)));
+    }
+
+    /**
+     * Points series of the current user as shown on the dashboard chart.
+     */
+    @GetMapping("/series")
+    public ResponseEntity<SeriesJson> series(@CurrentUser UserPrincipal user,
+                                             @RequestParam(value = "granularity", defaultValue = "WEEK")
+                                             TimeGranularity granularity,
+                                             WebRequest request) {
+        // the daily and monthly windows end today, so their content also changes at midnight
+        String variant = granularity == TimeGranularity.WEEK
+                ? granularity.name()
+                : granularity.name() + LocalDate.now();
+        if (notModified(user, request, variant)) {
+            return notModifiedResponse();
+        }
+        PointsSeries series = ecoActionService.computePointsSeries(user.getId(), granularity);
+        return ResponseEntity.ok().cacheControl(CACHE_CONTROL)
+                .body(new SeriesJson(granularity, series.getLabels(), series.getValues()));
+    }
+
+    /**
+     * Streaks and achievements of the current user. They are updated asynchronously after each write, so this
+     * response is not validated against the data version and is always sent in full.
+     */
+    @GetMapping("/activity")
+    public ResponseEntity<ActivityJson> activity(@CurrentUser UserPrincipal user) {
+        ActivitySummary summary = activityService.getSummary(user.getId(), LocalDate.now());
+        List<AchievementJson> achievements = summary.getAchievements().stream()
+                .map(held -> new AchievementJson(held.getAchievement(), held.getAchievement().getLabel(),
+                        held.getEarnedOn()))
+                .toList();
+        return ResponseEntity.ok().cacheControl(CACHE_CONTROL).body(new ActivityJson(summary.getCurrentDayStreak(),
+                summary.getLongestDayStreak(), summary.getCurrentWeekStreak(), achievements));
+    }
+
+    /**
+     * Check the request's validators against the user's data version. Sets {@code ETag} and
+     * {@code Last-Modified} on the response either way.
+     *
+     * @param variant distinguishes representations of the same version, may be empty
+     * @return true if the client's copy is current and a 304 has been prepared
+     */
+    private boolean notModified(UserPrincipal user, WebRequest request, String variant) {
+        Optional<UserPointsSummary> summary = pointsSummaryService.findSummary(user.getId());
+        long version = summary.map(UserPointsSummary::getDataVersion).orElse(0L);
+        long lastModified = summary.map(UserPointsSummary::getUpdatedAt).map(Instant::toEpochMilli).orElse(-1L);
+        String etag = "\"" + user.getId() + "-" + version + (variant.isEmpty() ? "" : "-" + variant) + "\"";
+        return request.checkNotModified(etag, lastModified);
+    }
+
+    private static <T> ResponseEntity<T> notModifiedResponse() {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(CACHE_CONTROL).build();
+    }
+
+    @Value
+    public static class ActionPageJson {
+        List<ActionJson> items;
+        String nextCursor;
+    }
+
+    @Value
+    public static class ActionJson {
+        Long id;
+        ActionType actionType;
+        LocalDate date;
+        String description;
+        int points;
+
+        static ActionJson of(EcoAction action) {
+            return new ActionJson(action.getId(), action.getActionType(), action.getDate(),
+                    action.getDescription(), action.getPoints());
+        }
+    }
+
+    @Value
+    public static class StatsJson {
+        int totalPoints;
+        String level;
+    }
+
+    @Value
+    public static class ActivityJson {
+        int currentDayStreak;
+        int longestDayStreak;
+        int currentWeekStreak;
+        List<AchievementJson> achievements;
+    }
+
+    @Value
+    public static class AchievementJson {
+        Achievement achievement;
+        String label;
+        LocalDate earnedOn;
+    }
+
+    @Value
+    public static class SeriesJson {
+        TimeGranularity granularity;
+        List<String> labels;
+        int[] values;
+    }
+}
@@ -50,7 +50,7 @@ public class AuthController {
             return "register";
         }
         // ensure email uniqueness
-        if (userService.findByEmail(user.getEmail()).isPresent()) {
+        if (userService.isEmailTaken(user.getEmail())) {
             model.addAttribute("registrationError", "Email address is already in use.");
             return "register";
         }
@@ -1,17 +1,23 @@
 package com.ecotrack.web;
 
-import com.ecotrack.model.User;
+import com.ecotrack.enums.TimeGranularity;
+import com.ecotrack.security.CurrentUser;
+import com.ecotrack.security.UserPrincipal;
+import com.ecotrack.service.ActivityService;
 import com.ecotrack.service.EcoActionService;
-import com.ecotrack.service.UserService;
+import com.ecotrack.service.PointsRulesService;
+import com.ecotrack.service.PointsSeries;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.time.LocalDate;
 import java.util.Map;
 
 /**
@@ -21,50 +27,52 @@ import java.util.Map;
 public class DashboardController {
 
     private final EcoActionService ecoActionService;
-    private final UserService userService;
+    private final DashboardUpdateHub dashboardUpdateHub;
+    private final FragmentCache fragmentCache;
+    private final PointsRulesService pointsRulesService;
+    private final ActivityService activityService;
 
     @Autowired
-    public DashboardController(EcoActionService ecoActionService, UserService userService) {
+    public DashboardController(EcoActionService ecoActionService, DashboardUpdateHub dashboardUpdateHub,
+                               FragmentCache fragmentCache, PointsRulesService pointsRulesService,
+                               ActivityService activityService) {
         this.ecoActionService = ecoActionService;
-        this.userService = userService;
+        this.dashboardUpdateHub = dashboardUpdateHub;
+        this.fragmentCache = fragmentCache;
+        this.pointsRulesService = pointsRulesService;
+        this.activityService = activityService;
     }
 
     @GetMapping("/dashboard")
-    public String showDashboard(Model model) {
-        User user = getCurrentUser();
-        int totalPoints = ecoActionService.computeTotalPoints(user);
-        String level = determineLevel(totalPoints);
-        Map<String, Integer> pointsByWeek = ecoActionService.computePointsByWeek(user);
-
-        // prepare chart labels and data lists for the frontend
-        List<String> labels = new ArrayList<>(pointsByWeek.keySet());
-        List<Integer> data = new ArrayList<>(pointsByWeek.values());
+    public String showDashboard(@CurrentUser UserPrincipal user,
+                                @RequestParam(value = "granularity", defaultValue = "WEEK") TimeGranularity granularity,
+                                HttpServletRequest request, HttpServletResponse response,
+                                Model model) {
+        int totalPoints = ecoActionService.computeTotalPoints(user.getId());
+        String level = pointsRulesService.level(totalPoints);
+        // the daily and monthly windows end today, so their content also changes at midnight
+        String key = granularity == TimeGranularity.WEEK
+                ? "chart:" + granularity
+                : "chart:" + granularity + ":" + LocalDate.now();
 
         model.addAttribute("totalPoints", totalPoints);
         model.addAttribute("level", level);
-        model.addAttribute("chartLabels", labels);
-        model.addAttribute("chartData", data);
+        model.addAttribute("activity", activityService.getSummary(user.getId(), LocalDate.now()));
+        model.addAttribute("granularity", granularity);
+        model.addAttribute("chartScript", fragmentCache.render(user.getId(), key,
+                "fragments/dashboard_chart", "chartData", request, response, () -> {
+                    PointsSeries series = ecoActionService.computePointsSeries(user.getId(), granularity);
+                    // labels are formatted here, once per bucket, rather than per action
+                    return Map.of("chartLabels", series.getLabels(), "chartData", series.getValues());
+                }));
         return "dashboard";
     }
 
-    private User getCurrentUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String email = authentication.getName();
-        return userService.findByEmail(email).orElseThrow();
-    }
-
     /**
-     * Simple level determination based on total points. Adjust thresholds as needed.
+     * Live updates of the current user's dashboard as server-sent {@code points} events.
      */
-    private String determineLevel(int totalPoints) {
-        if (totalPoints >= 200) {
-            return "Platinum";
-        } else if (totalPoints >= 100) {
-            return "Gold";
-        } else if (totalPoints >= 50) {
-            return "Silver";
-        } else {
-            return "Bronze";
-        }
+    @GetMapping(value = "/dashboard/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter dashboardEvents(@CurrentUser UserPrincipal user) {
+        return dashboardUpdateHub.subscribe(user.getId());
     }
 }
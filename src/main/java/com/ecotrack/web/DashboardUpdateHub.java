@@ -0,0 +1,318 @@
+package com.ecotrack.web;
+
+import com.ecotrack.service.ClusterChangeEvent;
+import com.ecotrack.service.DashboardUpdate;
+import com.ecotrack.service.EcoActionService;
+import com.ecotrack.service.PointsChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes {@link DashboardUpdate}s to open dashboards over server-sent events.
+ * Connections are async requests, so an idle one holds no thread; sending runs on a small shared pool,
+ * one connection at a time in order. Each connection buffers at most {@code buffer-size} events; when a
+ * client falls that far behind its buffer is replaced by a single {@code resync} event asking it to reload.
+ * A send still blocked after {@code send-timeout} (a client not reading) drops its connection from the fan-out
+ * and the pool gets a thread to replace the blocked one until the send fails or returns, when the connection
+ * is closed.
+ * Idle connections get a heartbeat comment so proxies keep them open. In a cluster, changes made through other
+ * nodes reach the dashboards open on this one through the change log.
+ */
+@Component
+public class DashboardUpdateHub implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(DashboardUpdateHub.class);
+
+    private final EcoActionService ecoActionService;
+    private final Duration timeout;
+    private final int bufferSize;
+    private final int maxConnectionsPerUser;
+    private final Duration sendTimeout;
+    private final int threads;
+    private final ThreadPoolExecutor sender;
+    // threads added for sends that overran the send timeout, guarded by sender
+    private int stalledSends;
+    private final Map<Long, Set<Subscription>> subscriptions = new ConcurrentHashMap<>();
+
+    @Autowired
+    public DashboardUpdateHub(EcoActionService ecoActionService,
+                              @Value("${ecotrack.dashboard.push.timeout:30m}") Duration timeout,
+                              @Value("${ecotrack.dashboard.push.buffer-size:16}") int bufferSize,
+                              @Value("${ecotrack.dashboard.push.max-connections-per-user:5}")
+                              int maxConnectionsPerUser,
+                              @Value("${ecotrack.dashboard.push.send-timeout:5s}") Duration sendTimeout,
+                              @Value("${ecotrack.dashboard.push.threads:4}") int threads) {
+        this.ecoActionService = ecoActionService;
+        this.timeout = timeout;
+        this.bufferSize = bufferSize;
+        this.maxConnectionsPerUser = maxConnectionsPerUser;
+        this.sendTimeout = sendTimeout;
+        this.threads = threads;
+        AtomicInteger counter = new AtomicInteger();
+        this.sender = new ThreadPoolExecutor(threads, threads, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "dashboard-push-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.sender.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Open a stream of dashboard updates for a user. The oldest stream of the user is closed when the
+     * per-user limit is exceeded.
+     *
+     * @param userId the subscriber
+     * @return emitter to return from the handler
+     */
+    public SseEmitter subscribe(Long userId) {
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        Subscription subscription = new Subscription(userId, emitter);
+        Set<Subscription> userSubscriptions = subscriptions.compute(userId, (id, existing) -> {
+            Set<Subscription> set = existing == null ? ConcurrentHashMap.newKeySet() : existing;
+            set.add(subscription);
+            return set;
+        });
+        emitter.onCompletion(subscription::remove);
+        emitter.onTimeout(subscription::remove);
+        emitter.onError(error -> subscription.remove());
+        if (userSubscriptions.size() > maxConnectionsPerUser) {
+            userSubscriptions.stream()
+                    .filter(other -> other != subscription)
+                    .min(Comparator.comparingLong(other -> other.openedAt))
+                    .ifPresent(Subscription::close);
+        }
+        subscription.offer(SseEmitter.event().comment("connected"));
+        return emitter;
+    }
+
+    /**
+     * Fan a committed change out to the user's open dashboards. Nothing is read when none is open.
+     */
+    @TransactionalEventListener
+    public void onPointsChanged(PointsChangedEvent event) {
+        Set<Subscription> userSubscriptions = subscriptions.get(event.getUserId());
+        if (userSubscriptions == null || userSubscriptions.isEmpty()) {
+            return;
+        }
+        DashboardUpdate update;
+        try {
+            update = ecoActionService.describeChange(event);
+        } catch (RuntimeException e) {
+            // the change is committed; a failed push must not fail the request that made it
+            log.warn("Could not describe points change of user {}", event.getUserId(), e);
+            return;
+        }
+        for (Subscription subscription : userSubscriptions) {
+            subscription.offer(SseEmitter.event().name("points").data(update));
+        }
+    }
+
+    @EventListener(condition = "#event.type.name() == 'POINTS'")
+    public void onClusterChange(ClusterChangeEvent event) {
+        onPointsChanged(event.toPointsChangedEvent());
+    }
+
+    /**
+     * Keep idle connections open through proxies and detect clients that went away.
+     */
+    @Scheduled(fixedDelayString = "${ecotrack.dashboard.push.heartbeat-interval-ms:25000}")
+    public void heartbeat() {
+        for (Set<Subscription> userSubscriptions : subscriptions.values()) {
+            for (Subscription subscription : userSubscriptions) {
+                if (subscription.queue.isEmpty()) {
+                    subscription.offer(SseEmitter.event().comment("heartbeat"));
+                }
+            }
+        }
+    }
+
+    /**
+     * Drop connections whose current send has been blocked for longer than the send timeout, so that they get
+     * no further events and the pool replaces their thread. The blocked send keeps the emitter locked, so the
+     * connection is closed by its own thread once the send returns or the connector times the write out.
+     */
+    @Scheduled(fixedDelayString = "${ecotrack.dashboard.push.send-check-interval-ms:1000}")
+    public void dropStalledStreams() {
+        long now = System.nanoTime();
+        for (Set<Subscription> userSubscriptions : subscriptions.values()) {
+            for (Subscription subscription : userSubscriptions) {
+                long since = subscription.sendingSince;
+                if (since != 0 && now - since > sendTimeout.toNanos()) {
+                    subscription.stall();
+                }
+            }
+        }
+    }
+
+    /**
+     * Number of open connections.
+     */
+    public int getConnectionCount() {
+        return subscriptions.values().stream().mapToInt(Set::size).sum();
+    }
+
+    /**
+     * Give the pool a thread for a blocked send, at most doubling it.
+     */
+    private boolean addSenderThread() {
+        synchronized (sender) {
+            if (stalledSends >= threads) {
+                return false;
+            }
+            stalledSends++;
+            sender.setMaximumPoolSize(threads + stalledSends);
+            sender.setCorePoolSize(threads + stalledSends);
+            return true;
+        }
+    }
+
+    private void removeSenderThread() {
+        synchronized (sender) {
+            stalledSends--;
+            sender.setCorePoolSize(threads + stalledSends);
+            sender.setMaximumPoolSize(threads + stalledSends);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        sender.shutdownNow();
+        subscriptions.values().forEach(set -> set.forEach(Subscription::close));
+    }
+
+    private final class Subscription {
+
+        private final Long userId;
+        private final SseEmitter emitter;
+        private final long openedAt = System.nanoTime();
+        private final Queue<SseEmitter.SseEventBuilder> queue = new ArrayBlockingQueue<>(bufferSize);
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean stalled = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        // whether the pool holds a thread replacing this connection's blocked one
+        private final AtomicBoolean replaced = new AtomicBoolean();
+        // start of the send in progress, 0 when none
+        private volatile long sendingSince;
+
+        private Subscription(Long userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+
+        void offer(SseEmitter.SseEventBuilder event) {
+            if (!queue.offer(event)) {
+                // too far behind to catch up event by event
+                synchronized (queue) {
+                    queue.clear();
+                    queue.offer(SseEmitter.event().name("resync").data(""));
+                }
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    sender.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    draining.set(false);
+                }
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                if (stalled.get()) {
+                    close();
+                    return;
+                }
+                SseEmitter.SseEventBuilder event = queue.poll();
+                if (event == null) {
+                    draining.set(false);
+                    // an event offered (or a stall) after the poll but before the reset would otherwise wait
+                    if ((queue.isEmpty() && !stalled.get()) || !draining.compareAndSet(false, true)) {
+                        return;
+                    }
+                    continue;
+                }
+                sendingSince = System.nanoTime();
+                try {
+                    emitter.send(event);
+                } catch (IOException | IllegalStateException e) {
+                    log.debug("Dropping dashboard stream of user {}: {}", userId, e.getMessage());
+                    close();
+                    return;
+                } finally {
+                    sendingSince = 0;
+                }
+            }
+        }
+
+        /**
+         * Take a connection whose send overran the timeout out of the fan-out; its draining thread closes it.
+         */
+        void stall() {
+            if (!stalled.compareAndSet(false, true)) {
+                return;
+            }
+            log.debug("Dropping dashboard stream of user {}: send blocked for over {}", userId, sendTimeout);
+            remove();
+            if (addSenderThread()) {
+                replaced.set(true);
+                // closed meanwhile: the close saw no replacement to give back
+                if (closed.get()) {
+                    releaseReplacement();
+                }
+            }
+            schedule();
+        }
+
+        private void releaseReplacement() {
+            if (replaced.compareAndSet(true, false)) {
+                removeSenderThread();
+            }
+        }
+
+        void close() {
+            closed.set(true);
+            releaseReplacement();
+            remove();
+            try {
+                emitter.complete();
+            } catch (IllegalStateException e) {
+                // already completed
+            }
+        }
+
+        void remove() {
+            subscriptions.computeIfPresent(userId, (id, set) -> {
+                set.remove(this);
+                return set.isEmpty() ? null : set;
+            });
+        }
+    }
+}
@@ -2,19 +2,31 @@ package com.ecotrack.web;
 
 import com.ecotrack.enums.ActionType;
 import com.ecotrack.model.EcoAction;
-import com.ecotrack.model.User;
+import com.ecotrack.security.CurrentUser;
+import com.ecotrack.security.UserPrincipal;
+import com.ecotrack.service.ActionIngestQueue;
+import com.ecotrack.service.ActionPage;
 import com.ecotrack.service.EcoActionService;
+import com.ecotrack.service.PointsRules;
+import com.ecotrack.service.PointsRulesService;
 import com.ecotrack.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
-import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -24,23 +36,50 @@ import java.util.Optional;
 @RequestMapping("/actions")
 public class EcoActionController {
 
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final EcoActionService ecoActionService;
     private final UserService userService;
+    private final ActionIngestQueue actionIngestQueue;
+    private final FragmentCache fragmentCache;
+    private final PointsRulesService pointsRulesService;
 
     @Autowired
-    public EcoActionController(EcoActionService ecoActionService, UserService userService) {
+    public EcoActionController(EcoActionService ecoActionService, UserService userService,
+                               ActionIngestQueue actionIngestQueue, FragmentCache fragmentCache,
+                               PointsRulesService pointsRulesService) {
         this.ecoActionService = ecoActionService;
         this.userService = userService;
+        this.actionIngestQueue = actionIngestQueue;
+        this.fragmentCache = fragmentCache;
+        this.pointsRulesService = pointsRulesService;
     }
 
     /**
-     * Display the list of actions for the current user.
+     * Display one page of the current user's actions, newest first.
      */
     @GetMapping
-    public String listActions(Model model) {
-        User user = getCurrentUser();
-        List<EcoAction> actions = ecoActionService.findByUser(user);
-        model.addAttribute("actions", actions);
+    public String listActions(@CurrentUser UserPrincipal user,
+                              @RequestParam(value = "cursor", required = false) String cursor,
+                              @RequestParam(value = "size", defaultValue = "" + DEFAULT_PAGE_SIZE) int size,
+                              HttpServletRequest request, HttpServletResponse response,
+                              Model model) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        boolean firstPage = cursor == null || cursor.isBlank();
+        // pending write-behind actions are listed but not yet counted in the data version
+        int pending = actionIngestQueue.pending(user.getId()).size();
+        String key = "actions:" + (firstPage ? "" : cursor) + ":" + pageSize + ":" + pending;
+        model.addAttribute("actionTable", fragmentCache.render(user.getId(), key,
+                "fragments/action_table", "actionTable", request, response, () -> {
+                    ActionPage page = ecoActionService.findPage(user.getId(), cursor, pageSize);
+                    Map<String, Object> variables = new HashMap<>();
+                    variables.put("actions", page.getItems());
+                    variables.put("nextCursor", page.getNextCursor());
+                    variables.put("pageSize", pageSize);
+                    variables.put("firstPage", firstPage);
+                    return variables;
+                }));
         return "actions";
     }
 
@@ -51,83 +90,101 @@ public class EcoActionController {
     public String showAddForm(Model model) {
         model.addAttribute("action", new EcoAction());
         model.addAttribute("types", ActionType.values());
+        model.addAttribute("basePoints", basePoints());
         return "add_action";
     }
 
     /**
-     * Process adding a new action.
+     * Process adding a new action, scored by the gamification rules. With write-behind ingestion enabled the
+     * action is queued and written in the background; otherwise, or when the queue is full, it is saved before
+     * redirecting.
      */
     @PostMapping("/add")
-    public String addAction(@RequestParam("actionType") String actionType,
+    public String addAction(@CurrentUser UserPrincipal user,
+                            @RequestParam("actionType") String actionType,
                             @RequestParam("date") String date,
-                            @RequestParam("description") String description,
-                            @RequestParam("points") int points) {
-        User user = getCurrentUser();
+                            @RequestParam("description") String description) {
         EcoAction action = EcoAction.builder()
-                .user(user)
                 .actionType(ActionType.valueOf(actionType))
                 .date(LocalDate.parse(date))
                 .description(description)
-                .points(points)
                 .build();
-        ecoActionService.save(action);
+        pointsRulesService.score(user.getId(), List.of(action));
+        if (!actionIngestQueue.offer(user.getId(), action)) {
+            action.setUser(userService.getReference(user.getId()));
+            ecoActionService.save(action);
+        }
         return "redirect:/actions";
     }
 
     /**
-     * Show edit form for an existing action.
+     * Show the bulk import form.
+     */
+    @GetMapping("/import")
+    public String showImportForm() {
+        return "import_actions";
+    }
+
+    /**
+     * Import actions from an uploaded CSV file. The upload is streamed into batched inserts.
+     */
+    @PostMapping("/import")
+    public String importActions(@CurrentUser UserPrincipal user,
+                                @RequestParam("file") MultipartFile file,
+                                Model model) throws IOException {
+        try (Reader reader = new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8)) {
+            model.addAttribute("result", ecoActionService.importActions(user.getId(), reader));
+        }
+        return "import_actions";
+    }
+
+    /**
+     * Show edit form for an existing action owned by the current user.
      */
     @GetMapping("/edit/{id}")
-    public String showEditForm(@PathVariable Long id, Model model) {
-        User user = getCurrentUser();
-        // fetch the action; assume user owns it for brevity
-        Optional<EcoAction> actionOpt = ecoActionService.findByUser(user).stream()
-                .filter(a -> a.getId().equals(id))
-                .findFirst();
+    public String showEditForm(@CurrentUser UserPrincipal user, @PathVariable Long id, Model model) {
+        Optional<EcoAction> actionOpt = ecoActionService.findOwned(user.getId(), id);
         if (actionOpt.isEmpty()) {
             return "redirect:/actions";
         }
         model.addAttribute("action", actionOpt.get());
         model.addAttribute("types", ActionType.values());
+        model.addAttribute("basePoints", basePoints());
         return "edit_action";
     }
 
     /**
-     * Process updating an existing action.
+     * Process updating an existing action owned by the current user.
      */
     @PostMapping("/edit/{id}")
-    public String updateAction(@PathVariable Long id,
+    public String updateAction(@CurrentUser UserPrincipal user,
+                               @PathVariable Long id,
                                @RequestParam("actionType") String actionType,
                                @RequestParam("date") String date,
-                               @RequestParam("description") String description,
-                               @RequestParam("points") int points) {
-        User user = getCurrentUser();
-        List<EcoAction> actions = ecoActionService.findByUser(user);
-        for (EcoAction action : actions) {
-            if (action.getId().equals(id)) {
-                action.setActionType(ActionType.valueOf(actionType));
-                action.setDate(LocalDate.parse(date));
-                action.setDescription(description);
-                action.setPoints(points);
-                ecoActionService.save(action);
-                break;
-            }
-        }
+                               @RequestParam("description") String description) {
+        ecoActionService.update(user.getId(), id, ActionType.valueOf(actionType), LocalDate.parse(date),
+                description);
         return "redirect:/actions";
     }
 
     /**
-     * Delete an action by ID.
+     * Delete an action by ID if it belongs to the current user.
      */
     @PostMapping("/delete/{id}")
-    public String deleteAction(@PathVariable Long id) {
-        ecoActionService.delete(id);
+    public String deleteAction(@CurrentUser UserPrincipal user, @PathVariable Long id) {
+        ecoActionService.delete(user.getId(), id);
         return "redirect:/actions";
     }
 
-    private User getCurrentUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String email = authentication.getName();
-        return userService.findByEmail(email).orElseThrow();
+    /**
+     * Base points of every type under the rules in effect, shown next to the type on the forms.
+     */
+    private Map<ActionType, Integer> basePoints() {
+        PointsRules rules = pointsRulesService.current();
+        Map<ActionType, Integer> points = new EnumMap<>(ActionType.class);
+        for (ActionType type : ActionType.values()) {
+            points.put(type, rules.basePoints(type));
+        }
+        return points;
     }
 }
@@ -0,0 +1,76 @@
+package com.ecotrack.web;
+
+import com.ecotrack.enums.ExportFormat;
+import com.ecotrack.security.CurrentUser;
+import com.ecotrack.security.UserPrincipal;
+import com.ecotrack.service.ActionExportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
+
+/**
+ * Downloads of the action history as CSV or NDJSON, optionally gzipped. The body is written by
+ * {@link ActionExportService} on the export executor configured in {@link WebConfig}, so the request thread is
+ * released as soon as the headers are decided.
+ * <p>
+ * Archived actions are not in the download, as only their weekly totals are kept; the
+ * {@value #ARCHIVED_ACTIONS_HEADER} response header gives how many were left out.
+ */
+@RestController
+@RequestMapping("/api/v1/export")
+public class ExportController {
+
+    static final String ARCHIVED_ACTIONS_HEADER = "X-Archived-Actions";
+
+    private final ActionExportService actionExportService;
+
+    @Autowired
+    public ExportController(ActionExportService actionExportService) {
+        this.actionExportService = actionExportService;
+    }
+
+    /**
+     * The current user's actions, oldest first.
+     */
+    @GetMapping("/actions")
+    public ResponseEntity<StreamingResponseBody> exportActions(
+            @CurrentUser UserPrincipal user,
+            @RequestParam(value = "format", defaultValue = "CSV") ExportFormat format,
+            @RequestParam(value = "gzip", defaultValue = "false") boolean gzip) {
+        Long userId = user.getId();
+        return download("ecotrack-actions", format, gzip, actionExportService.countArchivedActions(userId),
+                out -> actionExportService.exportUser(userId, format, gzip, out));
+    }
+
+    /**
+     * Every user's actions, for compliance. Restricted to administrators in {@code SecurityConfig}.
+     */
+    @GetMapping("/all")
+    public ResponseEntity<StreamingResponseBody> exportAll(
+            @RequestParam(value = "format", defaultValue = "CSV") ExportFormat format,
+            @RequestParam(value = "gzip", defaultValue = "false") boolean gzip) {
+        return download("ecotrack-all-actions", format, gzip, actionExportService.countArchivedActions(),
+                out -> actionExportService.exportAll(format, gzip, out));
+    }
+
+    private static ResponseEntity<StreamingResponseBody> download(String name, ExportFormat format, boolean gzip,
+                                                                  long archivedActions, StreamingResponseBody body) {
+        String filename = name + "-" + LocalDate.now() + "." + format.getExtension() + (gzip ? ".gz" : "");
+        return ResponseEntity.ok()
+                .contentType(gzip ? MediaType.parseMediaType("application/gzip")
+                        : MediaType.parseMediaType(format.getContentType() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(filename).build().toString())
+                .header(ARCHIVED_ACTIONS_HEADER, Long.toString(archivedActions))
+                .body(body);
+    }
+}
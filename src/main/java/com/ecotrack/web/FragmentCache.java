@@ -0,0 +1,152 @@
+package com.ecotrack.web;
+
+import com.ecotrack.model.UserPointsSummary;
+import com.ecotrack.service.ClusterChangeEvent;
+import com.ecotrack.service.PointsChangedEvent;
+import com.ecotrack.service.PointsSummaryService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.support.RequestContext;
+import org.springframework.web.servlet.support.RequestContextUtils;
+import org.thymeleaf.context.WebContext;
+import org.thymeleaf.spring6.ISpringTemplateEngine;
+import org.thymeleaf.spring6.context.webmvc.SpringWebMvcThymeleafRequestContext;
+import org.thymeleaf.spring6.expression.ThymeleafEvaluationContext;
+import org.thymeleaf.spring6.naming.SpringContextVariableNames;
+import org.thymeleaf.web.servlet.JakartaServletWebApplication;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Per-user cache of rendered page fragments (the action table, the dashboard chart data), keyed by the user's
+ * data version in {@link UserPointsSummary}. Any write bumps the version, so a fragment is never served for
+ * data it was not rendered from; the user's fragments are also dropped as soon as a points change commits.
+ * A hit costs one primary key lookup instead of the page's queries and the fragment's rendering.
+ * <p>
+ * Disabled by default ({@code ecotrack.fragment-cache.enabled}); fragments are then rendered on every request
+ * through the same path.
+ */
+@Component
+public class FragmentCache {
+
+    private static final int MAX_FRAGMENTS_PER_USER = 32;
+
+    private final ISpringTemplateEngine templateEngine;
+    private final PointsSummaryService pointsSummaryService;
+    private final ApplicationContext applicationContext;
+    private final ServletContext servletContext;
+    private final JakartaServletWebApplication application;
+    private final boolean enabled;
+    private final Cache<Long, UserFragments> cache;
+
+    @Autowired
+    public FragmentCache(ISpringTemplateEngine templateEngine,
+                         PointsSummaryService pointsSummaryService,
+                         ApplicationContext applicationContext,
+                         ServletContext servletContext,
+                         @Value("${ecotrack.fragment-cache.enabled:false}") boolean enabled,
+                         @Value("${ecotrack.fragment-cache.max-users:10000}") long maxUsers,
+                         @Value("${ecotrack.fragment-cache.expire-after-access:10m}") Duration expireAfterAccess) {
+        this.templateEngine = templateEngine;
+        this.pointsSummaryService = pointsSummaryService;
+        this.applicationContext = applicationContext;
+        this.servletContext = servletContext;
+        this.application = JakartaServletWebApplication.buildApplication(servletContext);
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterAccess(expireAfterAccess)
+                .build();
+    }
+
+    /**
+     * Rendered fragment of a user's page, from the cache when the user's data has not changed since it was
+     * rendered.
+     *
+     * @param userId owner of the data shown in the fragment
+     * @param key identifies the fragment and every request parameter it depends on
+     * @param template template holding the fragment
+     * @param fragment fragment selector
+     * @param model supplies the fragment's variables on a miss; only called then
+     * @return rendered HTML
+     */
+    public String render(Long userId, String key, String template, String fragment,
+                         HttpServletRequest request, HttpServletResponse response,
+                         Supplier<Map<String, Object>> model) {
+        if (!enabled) {
+            return process(template, fragment, model.get(), request, response);
+        }
+        // read the version before the data: a write in between can only waste this entry, not mislabel it
+        long version = pointsSummaryService.findSummary(userId).map(UserPointsSummary::getDataVersion).orElse(0L);
+        UserFragments fragments = cache.asMap().compute(userId, (id, existing) ->
+                existing != null && existing.version >= version ? existing : new UserFragments(version));
+        if (fragments.version != version) {
+            // a newer version is cached already: this request read stale data, do not cache it
+            return process(template, fragment, model.get(), request, response);
+        }
+        String html = fragments.html.get(key);
+        if (html == null) {
+            html = process(template, fragment, model.get(), request, response);
+            if (fragments.html.size() >= MAX_FRAGMENTS_PER_USER) {
+                // someone paging deep through their history: keep the cache bounded per user
+                fragments.html.clear();
+            }
+            fragments.html.put(key, html);
+        }
+        return html;
+    }
+
+    @TransactionalEventListener
+    public void onPointsChanged(PointsChangedEvent event) {
+        cache.invalidate(event.getUserId());
+    }
+
+    @EventListener(condition = "#event.type.name() == 'POINTS'")
+    public void onClusterChange(ClusterChangeEvent event) {
+        cache.invalidate(event.getUserId());
+    }
+
+    /**
+     * Render a fragment with the same Spring integration (links, conversion, request context) as a full view.
+     */
+    private String process(String template, String fragment, Map<String, Object> model,
+                           HttpServletRequest request, HttpServletResponse response) {
+        Map<String, Object> variables = new HashMap<>(model);
+        RequestContext requestContext = new RequestContext(request, response, servletContext, variables);
+        variables.put(SpringContextVariableNames.SPRING_REQUEST_CONTEXT, requestContext);
+        variables.put(SpringContextVariableNames.THYMELEAF_REQUEST_CONTEXT,
+                new SpringWebMvcThymeleafRequestContext(requestContext, request));
+        ConversionService conversionService =
+                (ConversionService) request.getAttribute(ConversionService.class.getName());
+        variables.put(ThymeleafEvaluationContext.THYMELEAF_EVALUATION_CONTEXT_CONTEXT_VARIABLE_NAME,
+                new ThymeleafEvaluationContext(applicationContext, conversionService));
+        WebContext context = new WebContext(application.buildExchange(request, response),
+                RequestContextUtils.getLocale(request), variables);
+        return templateEngine.process(template, Set.of(fragment), context);
+    }
+
+    private static final class UserFragments {
+
+        private final long version;
+        private final Map<String, String> html = new ConcurrentHashMap<>();
+
+        private UserFragments(long version) {
+            this.version = version;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.ecotrack.web;
+
+import com.ecotrack.security.HashingCapacityExceededException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+
+/**
+ * Translates overload conditions raised by controllers into HTTP responses clients can back off from.
+ */
+@ControllerAdvice
+public class GlobalExceptionHandler {
+
+    private static final int EXPORT_RETRY_AFTER_SECONDS = 60;
+
+    private final int hashingRetryAfterSeconds;
+
+    @Autowired
+    public GlobalExceptionHandler(@Value("${ecotrack.security.hashing.retry-after-seconds:5}") int hashingRetryAfterSeconds) {
+        this.hashingRetryAfterSeconds = hashingRetryAfterSeconds;
+    }
+
+    /**
+     * Registration hit a saturated password hashing executor.
+     */
+    @ExceptionHandler(HashingCapacityExceededException.class)
+    public ResponseEntity<String> handleHashingCapacityExceeded() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(hashingRetryAfterSeconds))
+                .body("The service is busy, please retry in a few seconds.");
+    }
+
+    /**
+     * Every export thread is busy and the export queue is full.
+     */
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity<String> handleExportCapacityExceeded() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(EXPORT_RETRY_AFTER_SECONDS))
+                .body("Too many exports are running, please retry in a minute.");
+    }
+}
@@ -0,0 +1,47 @@
+package com.ecotrack.web;
+
+import com.ecotrack.security.CurrentUser;
+import com.ecotrack.security.UserPrincipal;
+import com.ecotrack.service.LeaderboardEntry;
+import com.ecotrack.service.LeaderboardService;
+import com.ecotrack.service.UserService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import java.util.List;
+
+/**
+ * Controller for the global leaderboard.
+ */
+@Controller
+public class LeaderboardController {
+
+    private static final int MAX_LIMIT = 100;
+
+    private final LeaderboardService leaderboardService;
+    private final UserService userService;
+
+    @Autowired
+    public LeaderboardController(LeaderboardService leaderboardService, UserService userService) {
+        this.leaderboardService = leaderboardService;
+        this.userService = userService;
+    }
+
+    /**
+     * Show the top users and the current user's rank.
+     */
+    @GetMapping("/leaderboard")
+    public String showLeaderboard(@CurrentUser UserPrincipal user,
+                                  @RequestParam(value = "limit", defaultValue = "10") int limit,
+                                  Model model) {
+        List<LeaderboardEntry> top = leaderboardService.getTop(Math.max(1, Math.min(limit, MAX_LIMIT)));
+        model.addAttribute("entries", top);
+        model.addAttribute("names", userService.findDisplayNames(top.stream().map(LeaderboardEntry::getUserId).toList()));
+        model.addAttribute("myRank", leaderboardService.getRank(user.getId()).orElse(null));
+        model.addAttribute("rankedUsers", leaderboardService.size());
+        return "leaderboard";
+    }
+}
@@ -0,0 +1,20 @@
+package com.ecotrack.web;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Micrometer instrumentation beyond what Spring Boot registers on its own (HTTP requests, Hikari pools,
+ * caches, Hibernate statistics): enables {@link io.micrometer.core.annotation.Timed} on service methods.
+ * Everything is exported under {@code /actuator/prometheus}.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registry) {
+        return new TimedAspect(registry);
+    }
+}
@@ -1,10 +1,13 @@
 package com.ecotrack.web;
 
 import com.ecotrack.model.User;
+import com.ecotrack.security.CurrentUser;
+import com.ecotrack.security.CurrentUserRefresher;
+import com.ecotrack.security.UserPrincipal;
 import com.ecotrack.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -18,30 +21,29 @@ import org.springframework.web.bind.annotation.RequestParam;
 public class ProfileController {
 
     private final UserService userService;
+    private final CurrentUserRefresher currentUserRefresher;
 
     @Autowired
-    public ProfileController(UserService userService) {
+    public ProfileController(UserService userService, CurrentUserRefresher currentUserRefresher) {
         this.userService = userService;
+        this.currentUserRefresher = currentUserRefresher;
     }
 
     @GetMapping("/profile")
-    public String showProfile(Model model) {
-        User user = getCurrentUser();
+    public String showProfile(@CurrentUser UserPrincipal user, Model model) {
         model.addAttribute("user", user);
         return "profile";
     }
 
     @PostMapping("/profile")
-    public String updateProfile(@RequestParam("name") String name,
-                                @RequestParam("avatar") String avatar) {
-        User user = getCurrentUser();
-        userService.updateProfile(user, name, avatar);
+    public String updateProfile(@CurrentUser UserPrincipal principal,
+                                @RequestParam("name") String name,
+                                @RequestParam("avatar") String avatar,
+                                HttpServletRequest request,
+                                HttpServletResponse response) {
+        User user = userService.updateProfile(principal.getId(), name, avatar);
+        // the principal caches the profile, replace it so the next pages show the new values
+        currentUserRefresher.refresh(user, request, response);
         return "redirect:/profile?success";
     }
-
-    private User getCurrentUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String email = authentication.getName();
-        return userService.findByEmail(email).orElseThrow();
-    }
 }
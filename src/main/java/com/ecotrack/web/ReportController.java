@@ -0,0 +1,53 @@
+package com.ecotrack.web;
+
+import com.ecotrack.enums.TimeGranularity;
+import com.ecotrack.service.ActionReportRow;
+import com.ecotrack.service.ActionRollupService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Organisation-wide action reports, answered from the pre-aggregated action roll-ups.
+ */
+@RestController
+@RequestMapping("/api/v1/reports")
+public class ReportController {
+
+    private static final int MAX_RANGE_YEARS = 5;
+
+    private final ActionRollupService actionRollupService;
+
+    @Autowired
+    public ReportController(ActionRollupService actionRollupService) {
+        this.actionRollupService = actionRollupService;
+    }
+
+    /**
+     * Points, counts and points-per-action percentiles per action type and period. Defaults to the last twelve
+     * months up to today, all cohorts merged.
+     */
+    @GetMapping("/actions")
+    public List<ActionReportRow> actions(
+            @RequestParam(value = "granularity", defaultValue = "MONTH") TimeGranularity granularity,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(value = "cohort", required = false) String cohort,
+            @RequestParam(value = "byCohort", defaultValue = "false") boolean byCohort) {
+        LocalDate last = to == null ? LocalDate.now() : to;
+        LocalDate first = from == null ? last.minusMonths(12).plusDays(1) : from;
+        if (first.isAfter(last) || first.isBefore(last.minusYears(MAX_RANGE_YEARS))) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Report range must be ascending and at most " + MAX_RANGE_YEARS + " years");
+        }
+        return actionRollupService.report(granularity, first, last, cohort, byCohort);
+    }
+}
@@ -0,0 +1,40 @@
+package com.ecotrack.web;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Opt-in virtual-thread request execution (ecotrack.virtual-threads.enabled=true, JDK 21+).
+ * Tomcat then runs every request on its own virtual thread, so requests blocked on JDBC no longer hold
+ * one of the 200 platform worker threads; the Hikari pool becomes the concurrency limit for database work.
+ * The executor is looked up reflectively so the code still compiles and runs on Java 17.
+ */
+@Configuration
+@ConditionalOnProperty(name = "ecotrack.virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadConfig.class);
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        ExecutorService executor = newVirtualThreadPerTaskExecutor();
+        log.info("Serving requests on virtual threads");
+        return protocolHandler -> protocolHandler.setExecutor(executor);
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("ecotrack.virtual-threads.enabled requires Java 21 or newer, running on "
+                    + System.getProperty("java.version"), e);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.ecotrack.web;
+
+import com.ecotrack.security.CurrentUserArgumentResolver;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Spring MVC customizations for the EcoTrack controllers.
+ * Asynchronous handlers (the streaming exports) run on a small bounded pool of their own; when it and its
+ * queue are full the request is rejected with a 503 instead of waiting.
+ */
+@Configuration
+public class WebConfig implements WebMvcConfigurer, DisposableBean {
+
+    private final CurrentUserArgumentResolver currentUserArgumentResolver;
+    private final ThreadPoolTaskExecutor asyncExecutor;
+    private final Duration asyncTimeout;
+
+    @Autowired
+    public WebConfig(CurrentUserArgumentResolver currentUserArgumentResolver,
+                     @Value("${ecotrack.export.threads:4}") int threads,
+                     @Value("${ecotrack.export.queue-capacity:16}") int queueCapacity,
+                     @Value("${ecotrack.export.timeout:2h}") Duration asyncTimeout) {
+        this.currentUserArgumentResolver = currentUserArgumentResolver;
+        this.asyncTimeout = asyncTimeout;
+        this.asyncExecutor = new ThreadPoolTaskExecutor();
+        asyncExecutor.setCorePoolSize(threads);
+        asyncExecutor.setMaxPoolSize(threads);
+        asyncExecutor.setQueueCapacity(queueCapacity);
+        asyncExecutor.setThreadNamePrefix("export-");
+        asyncExecutor.setDaemon(true);
+        asyncExecutor.initialize();
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(asyncExecutor);
+        // an export of millions of rows outlives the container's 30 second default
+        configurer.setDefaultTimeout(asyncTimeout.toMillis());
+    }
+
+    @Override
+    public void destroy() {
+        asyncExecutor.shutdown();
+    }
+
+    @Override
+    public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+        resolvers.add(currentUserArgumentResolver);
+    }
+}
@@ -0,0 +1,85 @@
+package com.ecotrack.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Read-only transactions read a replica unless the signed-in user just wrote or no replica is current; everything
+ * else goes to the primary. Runs on the H2 stand-in of the replicas-local profile, with the periodic copy and
+ * check left to the test.
+ */
+@SpringBootTest(properties = {
+        "ecotrack.datasource.replicas.max-lag=1s",
+        "ecotrack.datasource.replicas.check-interval-ms=3600000",
+        "ecotrack.datasource.replicas.local-copy.interval-ms=3600000"})
+@ActiveProfiles({"test", "replicas-local"})
+class ReplicaRoutingDataSourceTest {
+
+    @Autowired
+    private ReplicaRoutingDataSource replicaRoutingDataSource;
+
+    @Autowired
+    private LocalReplicaCopier localReplicaCopier;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void copyReplicas() {
+        localReplicaCopier.copy();
+        replicaRoutingDataSource.checkReplicas();
+    }
+
+    @AfterEach
+    void signOut() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void readOnlyTransactionsReadTheReplicasInTurn() {
+        assertThat(List.of(database(true), database(true)))
+                .containsExactlyInAnyOrder("ecotrack-replica-1", "ecotrack-replica-2");
+    }
+
+    @Test
+    void writesAndTheWritersOwnReadsGoToThePrimary() {
+        SecurityContextHolder.getContext().setAuthentication(
+                UsernamePasswordAuthenticationToken.authenticated("writer@example.com", null, List.of()));
+
+        assertThat(database(true)).startsWith("ecotrack-replica-");
+        assertThat(database(false)).isEqualTo("ecotrack");
+        assertThat(database(true)).isEqualTo("ecotrack");
+    }
+
+    @Test
+    void readsFallBackToThePrimaryWhenNoReplicaIsCurrent() throws InterruptedException {
+        // the replicas are not copied again, so their lag grows past max-lag
+        Thread.sleep(2100);
+        replicaRoutingDataSource.checkReplicas();
+
+        assertThat(database(true)).isEqualTo("ecotrack");
+    }
+
+    private String database(boolean readOnly) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(readOnly);
+        return transaction.execute(status ->
+                jdbcTemplate.queryForObject("select database()", String.class).toLowerCase());
+    }
+}
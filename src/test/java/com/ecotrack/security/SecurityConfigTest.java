@@ -0,0 +1,81 @@
+package com.ecotrack.security;
+
+import com.ecotrack.model.User;
+import com.ecotrack.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Actuator endpoints other than health are for administrators only, and sessions never hold password hashes.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class SecurityConfigTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserService userService;
+
+    @Test
+    void healthIsOpenAndOtherActuatorEndpointsNeedAdmin() throws Exception {
+        register("member@example.com", "ROLE_USER");
+        register("admin@example.com", "ROLE_ADMIN");
+
+        mockMvc.perform(get("/actuator/health"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/actuator/metrics"))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/actuator/metrics").header(HttpHeaders.AUTHORIZATION, basic("member@example.com")))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/actuator/metrics").header(HttpHeaders.AUTHORIZATION, basic("admin@example.com")))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void sessionKeepsPrincipalWithoutPasswordAndCachedDetailsStillSignIn() throws Exception {
+        register("session@example.com", "ROLE_USER");
+        MockHttpSession session = new MockHttpSession();
+
+        mockMvc.perform(get("/api/v1/stats").session(session)
+                        .header(HttpHeaders.AUTHORIZATION, basic("session@example.com")))
+                .andExpect(status().isOk());
+
+        SecurityContext context = (SecurityContext) session.getAttribute(
+                HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY);
+        assertThat(context.getAuthentication().getPrincipal()).isInstanceOfSatisfying(UserPrincipal.class,
+                principal -> assertThat(principal.getPassword()).isNull());
+        // a new sign-in checks the password against the cached details, which must still carry the hash
+        mockMvc.perform(get("/api/v1/stats").header(HttpHeaders.AUTHORIZATION, basic("session@example.com")))
+                .andExpect(status().isOk());
+    }
+
+    private void register(String email, String role) {
+        userService.register(User.builder()
+                .email(email).password("secret").name("Tester").roles(new HashSet<>(Set.of(role))).build());
+    }
+
+    private static String basic(String username) {
+        return "Basic " + Base64.getEncoder()
+                .encodeToString((username + ":secret").getBytes(StandardCharsets.UTF_8));
+    }
+}
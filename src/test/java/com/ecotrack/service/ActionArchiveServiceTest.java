@@ -0,0 +1,71 @@
+package com.ecotrack.service;
+
+import com.ecotrack.model.User;
+import com.ecotrack.repository.DailyTypePoints;
+import com.ecotrack.repository.EcoActionArchiveRepository;
+import com.ecotrack.repository.EcoActionRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Archiving moves old actions into weekly roll-ups without losing any of their points.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ActionArchiveServiceTest {
+
+    @Autowired
+    private ActionArchiveService actionArchiveService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private EcoActionService ecoActionService;
+
+    @Autowired
+    private EcoActionRepository ecoActionRepository;
+
+    @Autowired
+    private EcoActionArchiveRepository archiveRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void archivesEveryActionBeforeTheCutoffAndKeepsTheRest() throws IOException {
+        Long userId = userService.register(User.builder()
+                .email("archivist@example.com").password("secret").name("Archivist").build()).getId();
+        ecoActionService.importActions(userId, new StringReader("actionType,date,points,description\n"
+                + "CYCLING,2020-03-02,0,old\n"
+                + "RECYCLING,2020-03-03,0,old\n"
+                + "CYCLING,2020-06-01,0,old\n"
+                + "CYCLING,2020-09-01,0,kept\n"));
+        long points = ecoActionRepository.sumPointsByUserId(userId);
+        long keptPoints = points - pointsBefore(userId, "2020-09-01");
+
+        Integer archived = new TransactionTemplate(transactionManager).execute(status ->
+                actionArchiveService.archive(userId, LocalDate.of(2020, 9, 1)));
+
+        assertThat(archived).isEqualTo(3);
+        assertThat(ecoActionRepository.sumPointsByUserId(userId)).isEqualTo(keptPoints);
+        assertThat(archiveRepository.sumPointsByUserId(userId) + keptPoints).isEqualTo(points);
+        assertThat(archiveRepository.sumPointsByUserIdGroupByWeek(userId)).hasSize(2);
+    }
+
+    private long pointsBefore(Long userId, String date) {
+        return ecoActionRepository.sumByUserIdGroupByDateAndTypeBefore(userId, LocalDate.parse(date)).stream()
+                .mapToLong(DailyTypePoints::getPoints)
+                .sum();
+    }
+}
@@ -0,0 +1,76 @@
+package com.ecotrack.service;
+
+import com.ecotrack.enums.ActionType;
+import com.ecotrack.model.ActionEvent;
+import com.ecotrack.model.EcoAction;
+import com.ecotrack.model.User;
+import com.ecotrack.repository.ActionEventBatchRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Every transaction records its own events, once, when it commits.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ActionEventOutboxTest {
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @SpyBean
+    private ActionEventBatchRepository actionEventBatchRepository;
+
+    @Test
+    void nestedTransactionRecordsOnlyItsOwnEventsAndRolledBackOneNone() {
+        Long userId = userService.register(User.builder()
+                .email("outboxed@example.com").password("secret").name("Outboxed").build()).getId();
+        TransactionTemplate outer = new TransactionTemplate(transactionManager);
+        TransactionTemplate inner = new TransactionTemplate(transactionManager);
+        inner.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        outer.executeWithoutResult(status -> {
+            publish(userId, ActionType.RECYCLING);
+            inner.executeWithoutResult(nested -> {
+                publish(userId, ActionType.CYCLING);
+                publish(userId, ActionType.CYCLING);
+            });
+            publish(userId, ActionType.RECYCLING);
+            status.setRollbackOnly();
+        });
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<ActionEvent>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(actionEventBatchRepository, times(1)).insertAll(inserted.capture());
+        assertThat(inserted.getValue()).extracting(ActionEvent::getActionType)
+                .containsExactly(ActionType.CYCLING, ActionType.CYCLING);
+    }
+
+    private void publish(Long userId, ActionType actionType) {
+        eventPublisher.publishEvent(EcoActionEvent.created(userId, EcoAction.builder()
+                .actionType(actionType)
+                .date(LocalDate.of(2024, 3, 4))
+                .build()));
+    }
+}
@@ -0,0 +1,81 @@
+package com.ecotrack.service;
+
+import com.ecotrack.enums.ActionType;
+import com.ecotrack.model.EcoAction;
+import com.ecotrack.model.User;
+import com.ecotrack.repository.EcoActionRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+
+/**
+ * Every accepted action is resolved, written or dropped, even when its batch fails.
+ */
+@SpringBootTest(properties = "ecotrack.ingest.write-behind.enabled=true")
+@ActiveProfiles("test")
+class ActionIngestQueueTest {
+
+    private static final long UNKNOWN_USER_ID = 999_999L;
+
+    @Autowired
+    private ActionIngestQueue actionIngestQueue;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private EcoActionRepository ecoActionRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @SpyBean
+    private ActionRollupService actionRollupService;
+
+    @Test
+    void batchFallingBackToUsersRetriesFailedUserAndForgetsEveryAction() throws InterruptedException {
+        Long userId = userService.register(User.builder()
+                .email("queued@example.com").password("secret").name("Queued").build()).getId();
+        // the user's own transaction fails once, as on a lost connection, after the batch fell back to users
+        // (stubbed inside a transaction, which the spied method requires)
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                doThrow(new QueryTimeoutException("timed out")).doCallRealMethod()
+                        .when(actionRollupService).addActions(eq(userId), anyList()));
+
+        assertThat(actionIngestQueue.offer(UNKNOWN_USER_ID, action())).isTrue();
+        assertThat(actionIngestQueue.offer(userId, action())).isTrue();
+        awaitWritten(userId);
+        awaitWritten(UNKNOWN_USER_ID);
+
+        assertThat(ecoActionRepository.sumPointsByUserId(userId)).isEqualTo(10);
+        assertThat(actionIngestQueue.getQueueDepth()).isZero();
+    }
+
+    private static EcoAction action() {
+        return EcoAction.builder()
+                .actionType(ActionType.CYCLING)
+                .date(LocalDate.of(2024, 1, 1))
+                .description("queued")
+                .points(10)
+                .build();
+    }
+
+    private void awaitWritten(Long userId) throws InterruptedException {
+        for (int i = 0; i < 100 && !actionIngestQueue.pending(userId).isEmpty(); i++) {
+            Thread.sleep(100);
+        }
+        assertThat(actionIngestQueue.pending(userId)).isEmpty();
+    }
+}
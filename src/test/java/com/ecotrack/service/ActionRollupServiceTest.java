@@ -0,0 +1,109 @@
+package com.ecotrack.service;
+
+import com.ecotrack.enums.ActionType;
+import com.ecotrack.enums.TimeGranularity;
+import com.ecotrack.model.EcoAction;
+import com.ecotrack.model.User;
+import com.ecotrack.repository.EcoActionArchiveRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.Answer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mockingDetails;
+
+/**
+ * Roll-ups follow every committed action change, with the deltas of one transaction merged, including the
+ * changes committed while they are rebuilt.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ActionRollupServiceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2023, 5, 2);
+
+    private static final LocalDate REBUILT_DAY = LocalDate.of(2023, 6, 6);
+
+    @Autowired
+    private ActionRollupService actionRollupService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private EcoActionService ecoActionService;
+
+    @SpyBean
+    private EcoActionArchiveRepository archiveRepository;
+
+    @Test
+    void editMovesActionToItsNewTypeAndDeleteRemovesIt() {
+        Long userId = userService.register(User.builder()
+                .email("rolled-up@example.com").password("secret").name("Rolled").build()).getId();
+        EcoAction action = ecoActionService.save(EcoAction.builder()
+                .user(userService.getReference(userId))
+                .actionType(ActionType.RECYCLING)
+                .date(DAY)
+                .description("edited")
+                .build());
+
+        ecoActionService.update(userId, action.getId(), ActionType.CYCLING, DAY, "edited");
+
+        List<ActionReportRow> rows = actionRollupService.report(TimeGranularity.DAY, DAY, DAY, null, false);
+        assertThat(rows).extracting(ActionReportRow::getActionType).containsExactly(ActionType.CYCLING);
+        assertThat(rows.get(0).getActions()).isEqualTo(1);
+
+        ecoActionService.delete(userId, action.getId());
+
+        assertThat(actionRollupService.report(TimeGranularity.DAY, DAY, DAY, null, false)).isEmpty();
+    }
+
+    @Test
+    void actionSavedWhileRebuildingIsCountedOnce() {
+        Long userId = userService.register(User.builder()
+                .email("rebuilt@example.com").password("secret").name("Rebuilt").build()).getId();
+        save(userId, "before the rebuild");
+        CompletableFuture<EcoAction> concurrent = new CompletableFuture<>();
+        // a repository spy delegates to the real repository through its default answer
+        Answer<?> repository = mockingDetails(archiveRepository).getMockCreationSettings().getDefaultAnswer();
+        doAnswer(invocation -> {
+            if (userId.equals(invocation.getArgument(0)) && !concurrent.isDone()) {
+                // the user's actions are read by now: this one commits after the rebuild read them
+                CompletableFuture.runAsync(() -> concurrent.complete(save(userId, "during the rebuild")));
+                try {
+                    concurrent.get(300, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    // blocked until the rebuild commits
+                }
+            }
+            return repository.answer(invocation);
+        }).when(archiveRepository).findByUserId(any());
+
+        actionRollupService.rebuild();
+
+        assertThat(concurrent.join()).isNotNull();
+        List<ActionReportRow> rows = actionRollupService.report(TimeGranularity.DAY, REBUILT_DAY, REBUILT_DAY,
+                null, false);
+        assertThat(rows).extracting(ActionReportRow::getActions).containsExactly(2L);
+    }
+
+    private EcoAction save(Long userId, String description) {
+        return ecoActionService.save(EcoAction.builder()
+                .user(userService.getReference(userId))
+                .actionType(ActionType.CYCLING)
+                .date(REBUILT_DAY)
+                .description(description)
+                .build());
+    }
+}
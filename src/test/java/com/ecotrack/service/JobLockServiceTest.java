@@ -0,0 +1,55 @@
+package com.ecotrack.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A shared job runs once per lease, however many schedules fire during it.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class JobLockServiceTest {
+
+    @Autowired
+    private JobLockService jobLockService;
+
+    @Test
+    void skipsJobWhileItsLeaseIsHeld() {
+        AtomicInteger runs = new AtomicInteger();
+
+        assertThat(jobLockService.runExclusively("held", Duration.ofMinutes(5), Duration.ofMinutes(1),
+                runs::incrementAndGet)).isTrue();
+        assertThat(jobLockService.runExclusively("held", Duration.ofMinutes(5), Duration.ofMinutes(1),
+                runs::incrementAndGet)).isFalse();
+
+        assertThat(runs).hasValue(1);
+    }
+
+    @Test
+    void skipsJobWhileItRuns() {
+        AtomicInteger runs = new AtomicInteger();
+
+        jobLockService.runExclusively("running", Duration.ofMinutes(5), Duration.ZERO, () ->
+                assertThat(jobLockService.runExclusively("running", Duration.ofMinutes(5), Duration.ZERO,
+                        runs::incrementAndGet)).isFalse());
+
+        assertThat(runs).hasValue(0);
+    }
+
+    @Test
+    void runsJobAgainOnceItsLeaseIsReleased() {
+        AtomicInteger runs = new AtomicInteger();
+
+        jobLockService.runExclusively("released", Duration.ofMinutes(5), Duration.ZERO, runs::incrementAndGet);
+        jobLockService.runExclusively("released", Duration.ofMinutes(5), Duration.ZERO, runs::incrementAndGet);
+
+        assertThat(runs).hasValue(2);
+    }
+}
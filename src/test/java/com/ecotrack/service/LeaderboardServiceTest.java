@@ -0,0 +1,62 @@
+package com.ecotrack.service;
+
+import com.ecotrack.enums.ActionType;
+import com.ecotrack.model.EcoAction;
+import com.ecotrack.model.User;
+import com.ecotrack.repository.EcoActionArchiveRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.Answer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mockingDetails;
+
+/**
+ * A reload must not lose the changes committed while it computes the new totals.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class LeaderboardServiceTest {
+
+    @Autowired
+    private LeaderboardService leaderboardService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private EcoActionService ecoActionService;
+
+    @SpyBean
+    private EcoActionArchiveRepository archiveRepository;
+
+    @Test
+    void reloadReplaysChangesMadeWhileItAggregates() {
+        Long userId = userService.register(User.builder()
+                .email("reloaded@example.com").password("secret").name("Reloaded").build()).getId();
+        EcoAction action = ecoActionService.save(EcoAction.builder()
+                .user(userService.getReference(userId))
+                .actionType(ActionType.CYCLING)
+                .date(LocalDate.of(2024, 2, 5))
+                .description("before the reload")
+                .build());
+        // a repository spy delegates to the real repository through its default answer
+        Answer<?> repository = mockingDetails(archiveRepository).getMockCreationSettings().getDefaultAnswer();
+        doAnswer(invocation -> {
+            // the actions are already summed: this change reaches the leaderboard only as an event
+            leaderboardService.adjust(userId, 5);
+            return repository.answer(invocation);
+        }).when(archiveRepository).sumPointsGroupByUser();
+
+        leaderboardService.reload();
+
+        assertThat(leaderboardService.getRank(userId)).hasValueSatisfying(entry ->
+                assertThat(entry.getPoints()).isEqualTo(action.getPoints() + 5L));
+    }
+}
@@ -0,0 +1,118 @@
+package com.ecotrack.service;
+
+import com.ecotrack.enums.ActionType;
+import com.ecotrack.model.EcoAction;
+import com.ecotrack.model.User;
+import com.ecotrack.model.UserWeeklyPoints;
+import com.ecotrack.repository.EcoActionRepository;
+import com.ecotrack.repository.UserPointsSummaryRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The maintained points summary must always equal the sum over the raw actions, whichever write creates it.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class PointsSummaryServiceTest {
+
+    private static final String THREE_WEEKS_CSV = "actionType,date,points,description\n"
+            + "CYCLING,2024-01-01,0,first week\n"
+            + "CYCLING,2024-01-08,0,second week\n"
+            + "CYCLING,2024-01-15,0,third week\n";
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private EcoActionService ecoActionService;
+
+    @Autowired
+    private PointsSummaryService pointsSummaryService;
+
+    @Autowired
+    private EcoActionRepository ecoActionRepository;
+
+    @Autowired
+    private UserPointsSummaryRepository summaryRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void multiWeekImportByNewUserCountsEveryActionOnce() throws IOException {
+        Long userId = register("new-importer@example.com");
+
+        ecoActionService.importActions(userId, new StringReader(THREE_WEEKS_CSV));
+
+        assertSummaryMatchesActions(userId, 3);
+    }
+
+    @Test
+    void multiWeekImportByUserWithoutSummaryCountsEveryActionOnce() throws IOException {
+        // a user whose data predates the summaries: the first write rebuilds it
+        Long userId = register("legacy-importer@example.com");
+        summaryRepository.deleteById(userId);
+
+        ecoActionService.importActions(userId, new StringReader(THREE_WEEKS_CSV));
+
+        assertSummaryMatchesActions(userId, 3);
+    }
+
+    @Test
+    void editMovingActionToAnotherWeekOfUserWithoutSummaryCountsItOnce() {
+        Long userId = register("legacy-editor@example.com");
+        EcoAction action = ecoActionService.save(EcoAction.builder()
+                .user(userService.getReference(userId))
+                .actionType(ActionType.RECYCLING)
+                .date(LocalDate.of(2024, 1, 1))
+                .description("moved")
+                .build());
+        summaryRepository.deleteById(userId);
+
+        ecoActionService.update(userId, action.getId(), ActionType.CYCLING, LocalDate.of(2024, 1, 10), "moved");
+
+        assertSummaryMatchesActions(userId, 1);
+    }
+
+    @Test
+    void rebuildRepairingDriftedTotalEvictsCachedTotal() throws IOException {
+        Long userId = register("drifted@example.com");
+        ecoActionService.importActions(userId, new StringReader(THREE_WEEKS_CSV));
+        long raw = ecoActionRepository.sumPointsByUserId(userId);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                summaryRepository.addPoints(userId, 7, Instant.now()));
+        assertThat(ecoActionService.computeTotalPoints(userId)).isEqualTo(raw + 7);
+
+        pointsSummaryService.rebuild(userId);
+
+        assertThat(ecoActionService.computeTotalPoints(userId)).isEqualTo(raw);
+        assertSummaryMatchesActions(userId, 3);
+    }
+
+    private Long register(String email) {
+        return userService.register(User.builder().email(email).password("secret").name("Tester").build()).getId();
+    }
+
+    private void assertSummaryMatchesActions(Long userId, int weeks) {
+        long raw = ecoActionRepository.sumPointsByUserId(userId);
+        assertThat(raw).isPositive();
+        assertThat(pointsSummaryService.findSummary(userId)).hasValueSatisfying(summary ->
+                assertThat(summary.getTotalPoints()).isEqualTo(raw));
+        List<UserWeeklyPoints> weekly = pointsSummaryService.getWeeklyPoints(userId);
+        assertThat(weekly).hasSize(weeks);
+        assertThat(weekly.stream().mapToLong(UserWeeklyPoints::getPoints).sum()).isEqualTo(raw);
+    }
+}
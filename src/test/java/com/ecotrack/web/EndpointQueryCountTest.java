@@ -0,0 +1,120 @@
+package com.ecotrack.web;
+
+import com.ecotrack.model.User;
+import com.ecotrack.service.ActivityEventConsumer;
+import com.ecotrack.service.ActivityService;
+import com.ecotrack.service.EcoActionService;
+import com.ecotrack.service.UserService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.StringReader;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestBuilders.formLogin;
+import static org.springframework.security.test.web.servlet.response.SecurityMockMvcResultMatchers.authenticated;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrl;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Statements each page and API endpoint issues for a signed-in user, counted by the Hibernate statistics. A
+ * count growing with the user's history, or with a change to the mapping, shows up here as an N+1.
+ */
+@SpringBootTest(properties = {
+        // no scheduled job may run a query while a request is counted
+        "ecotrack.rules.reload-interval-ms=3600000",
+        "ecotrack.cluster.purge-interval-ms=3600000"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class EndpointQueryCountTest {
+
+    private static final int ACTIONS = 20;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private EcoActionService ecoActionService;
+
+    @Autowired
+    private ActivityService activityService;
+
+    // action events are applied by the test, never concurrently with a counted request
+    @MockBean
+    private ActivityEventConsumer activityEventConsumer;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void enableStatistics() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @CsvSource({
+            "/api/v1/actions, 2",
+            "/api/v1/stats, 2",
+            "/api/v1/series, 3",
+            "/api/v1/activity, 4",
+            "/dashboard, 7",
+            "/actions, 1",
+            "/leaderboard, 1",
+            // the signed-in principal carries the profile
+            "/profile, 0"
+    })
+    void endpointIssuesFixedNumberOfStatements(String path, long expected) throws Exception {
+        MockHttpSession session = signIn(path);
+
+        statistics.clear();
+        mockMvc.perform(get(path).session(session)).andExpect(status().isOk());
+
+        assertThat(statistics.getPrepareStatementCount()).as("statements of %s", path).isEqualTo(expected);
+    }
+
+    /**
+     * Register a user with a history of actions, apply the activity events of the import (the consumer that
+     * would apply them in the background is replaced by a mock) and sign the user in through the login form, so
+     * that only the request is counted.
+     */
+    private MockHttpSession signIn(String path) throws Exception {
+        String email = "queries" + Math.abs(path.hashCode()) + "@example.com";
+        Long userId = userService.register(User.builder().email(email).password("secret").name("Counted").build())
+                .getId();
+        StringBuilder csv = new StringBuilder("actionType,date,points,description\n");
+        LocalDate date = LocalDate.now();
+        for (int i = 0; i < ACTIONS; i++) {
+            csv.append(i % 2 == 0 ? "CYCLING," : "RECYCLING,").append(date.minusDays(3L * i)).append(",0,counted\n");
+        }
+        ecoActionService.importActions(userId, new StringReader(csv.toString()));
+        assertThat(activityService.applyPending(userId, ACTIONS)).isEqualTo(ACTIONS);
+
+        // the login form, unlike a first API request, leaves the cached aggregates cold
+        MvcResult login = mockMvc.perform(formLogin("/login").user(email).password("secret"))
+                .andExpect(redirectedUrl("/dashboard"))
+                .andExpect(authenticated().withUsername(email))
+                .andReturn();
+        return (MockHttpSession) login.getRequest().getSession(false);
+    }
+}
@@ -0,0 +1,111 @@
+package com.ecotrack.web;
+
+import com.ecotrack.enums.ActionType;
+import com.ecotrack.enums.ExportFormat;
+import com.ecotrack.model.EcoAction;
+import com.ecotrack.model.User;
+import com.ecotrack.repository.EcoActionArchiveRepository;
+import com.ecotrack.repository.EcoActionRepository;
+import com.ecotrack.service.ActionExportService;
+import com.ecotrack.service.EcoActionService;
+import com.ecotrack.service.ImportResult;
+import com.ecotrack.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Exports tell how many archived actions they leave out, and their CSV form imports back unchanged.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ExportControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private EcoActionService ecoActionService;
+
+    @Autowired
+    private EcoActionArchiveRepository archiveRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ActionExportService actionExportService;
+
+    @Autowired
+    private EcoActionRepository ecoActionRepository;
+
+    @Test
+    void exportCountsArchivedActionsLeftOut() throws Exception {
+        Long userId = userService.register(User.builder()
+                .email("exporter@example.com").password("secret").name("Exporter").build()).getId();
+        ecoActionService.importActions(userId, new StringReader("actionType,date,points,description\n"
+                + "CYCLING,2020-09-01,0,kept\n"));
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                archiveRepository.addActions(userId, 2020, 10, "CYCLING", 2, 20));
+
+        mockMvc.perform(get("/api/v1/export/actions")
+                        .header(HttpHeaders.AUTHORIZATION, basic("exporter@example.com", "secret")))
+                .andExpect(status().isOk())
+                .andExpect(header().string(ExportController.ARCHIVED_ACTIONS_HEADER, "2"));
+    }
+
+    @Test
+    void csvExportWithQuotedLineBreaksImportsBack() throws Exception {
+        String description = "first line, with a comma\nsecond \"quoted\" line";
+        Long exporterId = register("round-trip@example.com");
+        ecoActionService.save(EcoAction.builder()
+                .user(userService.getReference(exporterId))
+                .actionType(ActionType.CYCLING)
+                .date(LocalDate.of(2021, 3, 4))
+                .description(description)
+                .build());
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        actionExportService.exportUser(exporterId, ExportFormat.CSV, false, csv);
+
+        Long importerId = register("round-trip-importer@example.com");
+        ImportResult result = ecoActionService.importActions(importerId,
+                new StringReader(csv.toString(StandardCharsets.UTF_8) + "CYCLING,2021-03-05,0,after\n"));
+
+        assertThat(result.getRejectedRows()).isZero();
+        assertThat(result.getImportedRows()).isEqualTo(2);
+        assertThat(ecoActionRepository.findByUserIdOrderByDateDescIdDesc(importerId, Pageable.unpaged()))
+                .extracting(EcoAction::getDescription)
+                .containsExactly("after", description);
+    }
+
+    private Long register(String email) {
+        return userService.register(User.builder().email(email).password("secret").name("Tester").build()).getId();
+    }
+
+    private static String basic(String username, String password) {
+        return "Basic " + Base64.getEncoder()
+                .encodeToString((username + ":" + password).getBytes(StandardCharsets.UTF_8));
+    }
+}